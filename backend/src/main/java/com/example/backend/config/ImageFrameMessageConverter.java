@@ -0,0 +1,87 @@
+package com.example.backend.config;
+
+import com.example.backend.models.ImageMatrixResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Binary alternative to the JSON ImageMatrixResponse, selected with
+ * {@code Accept: application/x-pixel-frame}. All integers are little-endian:
+ *
+ * <pre>
+ * "PXF2" | format:int32 | width:int32 | height:int32 | imageLen:int32 | image bytes | matrixLen:int32 | matrixLen x ARGB:int32
+ * </pre>
+ *
+ * format says how the image bytes are encoded: 0 = PNG, 1 = JPEG.
+ *
+ * The matrix is streamed to the servlet output in fixed-size chunks, so nothing
+ * proportional to the image size is allocated.
+ */
+public class ImageFrameMessageConverter extends AbstractHttpMessageConverter<ImageMatrixResponse> {
+
+    public static final MediaType PIXEL_FRAME = MediaType.parseMediaType("application/x-pixel-frame");
+
+    private static final byte[] MAGIC = {'P', 'X', 'F', '2'};
+    public static final int FORMAT_PNG = 0;
+    public static final int FORMAT_JPEG = 1;
+    private static final int CHUNK_INTS = 16 * 1024;
+
+    public ImageFrameMessageConverter() {
+        super(PIXEL_FRAME);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ImageMatrixResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ImageMatrixResponse readInternal(Class<? extends ImageMatrixResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Pixel frames are response-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(ImageMatrixResponse r, MediaType contentType) {
+        long matrix = (r.linear == null) ? 0 : r.linear.length;
+        return MAGIC.length + 4L * 5 + r.image.length + 4L * matrix;
+    }
+
+    @Override
+    protected void writeInternal(ImageMatrixResponse r, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        int[] linear = (r.linear == null) ? new int[0] : r.linear;
+
+        ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt("jpeg".equals(r.format) ? FORMAT_JPEG : FORMAT_PNG).putInt(r.width).putInt(r.height).putInt(r.image.length);
+        out.write(MAGIC);
+        out.write(header.array());
+        out.write(r.image);
+
+        ByteBuffer chunk = ByteBuffer.allocate(4 * CHUNK_INTS).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.putInt(0, linear.length);
+        out.write(chunk.array(), 0, 4);
+
+        IntBuffer ints = chunk.asIntBuffer();
+        for (int off = 0; off < linear.length; off += CHUNK_INTS) {
+            int n = Math.min(CHUNK_INTS, linear.length - off);
+            ints.clear();
+            ints.put(linear, off, n);
+            out.write(chunk.array(), 0, 4 * n);
+        }
+        out.flush();
+    }
+}
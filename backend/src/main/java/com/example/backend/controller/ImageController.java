@@ -1,14 +1,46 @@
 package com.example.backend.controller;
 
+import com.example.backend.models.BatchResponse;
+import com.example.backend.models.CacheStats;
+import com.example.backend.models.ImageHandleResponse;
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.models.MatrixWindowResponse;
+import com.example.backend.models.OperationDTO;
+import com.example.backend.models.ResponseOptions;
+import com.example.backend.models.StepTiming;
+import com.example.backend.models.TilePyramidInfo;
 import com.example.backend.service.*;
 import com.example.backend.service.basic.*;
+import com.example.backend.service.cache.LayerImageCache;
+import com.example.backend.service.cache.LayerStackCache;
+import com.example.backend.service.cache.OperationKey;
+import com.example.backend.service.cache.ResultCache;
+import com.example.backend.service.core.BlurMode;
+import com.example.backend.service.core.Interpolation;
+import com.example.backend.service.core.PixelBuffer;
 import com.example.backend.service.filters.*;
 import com.example.backend.service.geometric.*;
+import com.example.backend.service.util.HashUtil;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/image")
@@ -26,6 +58,15 @@ public class ImageController {
     private final ImageSquareService imageSquareService;
     private final ImagePipelineService imagePipelineService;
     private final BackgroundRemovalService backgroundRemovalService;
+    private final ImageHandleService imageHandleService;
+    private final ResultCache resultCache;
+    private final SubMatrixService subMatrixService;
+    private final ResponseEncoder responseEncoder;
+    private final TilePyramidService tilePyramidService;
+    private final LayerImageCache layerImageCache;
+    private final LayerStackCache layerStackCache;
+    private final BatchService batchService;
+    private final JsonMapper jsonMapper;
 
     public ImageController(
             GrayscaleService grayscaleService, 
@@ -39,7 +80,16 @@ public class ImageController {
             CropService cropService, 
             ImageSquareService imageSquareService,
             ImagePipelineService imagePipelineService,
-            BackgroundRemovalService backgroundRemovalService) {
+            BackgroundRemovalService backgroundRemovalService,
+            ImageHandleService imageHandleService,
+            ResultCache resultCache,
+            SubMatrixService subMatrixService,
+            ResponseEncoder responseEncoder,
+            TilePyramidService tilePyramidService,
+            LayerImageCache layerImageCache,
+            LayerStackCache layerStackCache,
+            BatchService batchService,
+            JsonMapper jsonMapper) {
         this.grayscaleService = grayscaleService;
         this.brightnessService = brightnessService;
         this.contrastService = contrastService;
@@ -52,96 +102,319 @@ public class ImageController {
         this.imageSquareService = imageSquareService;
         this.imagePipelineService = imagePipelineService;
         this.backgroundRemovalService = backgroundRemovalService;
+        this.imageHandleService = imageHandleService;
+        this.resultCache = resultCache;
+        this.subMatrixService = subMatrixService;
+        this.responseEncoder = responseEncoder;
+        this.tilePyramidService = tilePyramidService;
+        this.layerImageCache = layerImageCache;
+        this.layerStackCache = layerStackCache;
+        this.batchService = batchService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Upload once, then pass the returned handle instead of "image" to any
+     * operation endpoint to reuse the already-decoded raster.
+     */
+    @PostMapping("/upload")
+    public ImageHandleResponse upload(@RequestParam("image") MultipartFile file) throws IOException {
+        return imageHandleService.upload(file.getBytes());
+    }
+
+    @GetMapping("/cache/stats")
+    public CacheStats cacheStats() {
+        return imageHandleService.stats();
+    }
+
+    @GetMapping("/cache/results/stats")
+    public CacheStats resultCacheStats() {
+        return resultCache.stats();
+    }
+
+    @GetMapping("/cache/layers/stats")
+    public CacheStats layerCacheStats() {
+        return layerImageCache.stats();
+    }
+
+    @GetMapping("/cache/stack/stats")
+    public CacheStats layerStackCacheStats() {
+        return layerStackCache.stats();
+    }
+
+    /**
+     * Tile pyramid for an uploaded image: fetch the layout, then only the tiles on screen.
+     * Tiles are content-addressed by handle, so clients may cache them indefinitely.
+     */
+    @GetMapping("/tiles/{handle}")
+    public TilePyramidInfo tilePyramid(@PathVariable("handle") String handle) throws IOException {
+        return tilePyramidService.info(handle);
+    }
+
+    @GetMapping("/tiles/{handle}/{level}/{x}/{y}")
+    public ResponseEntity<byte[]> tile(
+            @PathVariable("handle") String handle,
+            @PathVariable("level") int level,
+            @PathVariable("x") int x,
+            @PathVariable("y") int y) throws IOException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .body(tilePyramidService.tile(handle, level, x, y));
+    }
+
+    @GetMapping("/tiles/stats")
+    public CacheStats tileCacheStats() {
+        return tilePyramidService.stats();
+    }
+
+    /**
+     * Pixel inspector support: an (x, y, radius) window of a previous result's matrix
+     * (by resultId) or of an uploaded original (by handle), so clients can leave out the
+     * full matrix, which operation endpoints only include with matrix=true.
+     */
+    @GetMapping("/matrix/window")
+    public MatrixWindowResponse matrixWindow(
+            @RequestParam(value = "result", required = false) String resultId,
+            @RequestParam(value = "handle", required = false) String handle,
+            @RequestParam("x") int x,
+            @RequestParam("y") int y,
+            @RequestParam(value = "radius", defaultValue = "2") int radius) throws Exception {
+        try {
+            if (resultId != null) {
+                ImageMatrixResponse res = resultCache.lookup(resultId);
+                if (res == null || res.linear == null) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired result: " + resultId);
+                }
+                return subMatrixService.window(res.linear, res.width, res.height, x, y, radius);
+            }
+            PixelBuffer img = imageHandleService.resolve(null, handle);
+            return subMatrixService.window(img.data(), img.width(), img.height(), x, y, radius);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping("/is-square")
-    public boolean checkIfSquare(@RequestParam("image") MultipartFile file) throws IOException {
-        return imageSquareService.isSquare(file.getBytes());
+    public boolean checkIfSquare(
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle) throws IOException {
+        return imageSquareService.isSquare(source(file, handle));
     }
 
     @PostMapping("/crop")
     public ImageMatrixResponse crop(
-            @RequestParam("image") MultipartFile file,
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("x") int x,
             @RequestParam("y") int y,
             @RequestParam("w") int w,
             @RequestParam("h") int h,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return cropService.applyCrop(file.getBytes(), x, y, w, h, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        // Uploads are cropped while decoding; a handle's raster is already in memory
+        byte[] bytes = (file == null) ? null : file.getBytes();
+        try {
+            return cached(file, handle, options, OperationKey.of("crop")
+                            .param("x", x).param("y", y).param("w", w).param("h", h).param("grayscale", grayscale),
+                    (imageKey, source) -> (bytes != null)
+                            ? cropService.process(bytes, x, y, w, h, grayscale)
+                            : cropService.process(source.call(), x, y, w, h, grayscale));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping("/grayscale")
-    public ImageMatrixResponse grayscale(@RequestParam("image") MultipartFile file) throws Exception {
-        return grayscaleService.apply(file.getBytes());
+    public ImageMatrixResponse grayscale(
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("grayscale"),
+                img -> grayscaleService.process(img));
     }
 
     @PostMapping("/brightness")
     public ImageMatrixResponse brightness(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("level") int level,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return brightnessService.apply(file.getBytes(), level, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("brightness").param("level", level).param("grayscale", grayscale),
+                img -> brightnessService.process(img, level, grayscale));
     }
 
     @PostMapping("/contrast")
     public ImageMatrixResponse contrast(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("level") int level,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return contrastService.apply(file.getBytes(), level, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("contrast").param("level", level).param("grayscale", grayscale),
+                img -> contrastService.process(img, level, grayscale));
     }
 
     @PostMapping("/rotate")
     public ImageMatrixResponse rotate(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("angle") double angle,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return rotateService.apply(file.getBytes(), angle, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            @RequestParam(value = "interpolation", defaultValue = "nearest") String interpolation,
+            ResponseOptions options) throws Exception {
+        Interpolation mode = interpolation(interpolation);
+        return cached(file, handle, options, OperationKey.of("rotate").param("angle", angle).param("grayscale", grayscale).param("interpolation", mode),
+                img -> rotateService.process(img, angle, grayscale, mode));
     }
 
     @PostMapping("/flip/horizontal")
     public ImageMatrixResponse flipHorizontal(
-            @RequestParam("image") MultipartFile file,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return flipService.horizontal(file.getBytes(), grayscale);
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("flip/horizontal").param("grayscale", grayscale),
+                img -> flipService.horizontal(img, grayscale));
     }
 
     @PostMapping("/flip/vertical")
     public ImageMatrixResponse flipVertical(
-            @RequestParam("image") MultipartFile file,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return flipService.vertical(file.getBytes(), grayscale);
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("flip/vertical").param("grayscale", grayscale),
+                img -> flipService.vertical(img, grayscale));
     }
 
     @PostMapping("/blur")
     public ImageMatrixResponse blur(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("intensity") int intensity,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return blurService.apply(file.getBytes(), intensity, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            @RequestParam(value = "mode", defaultValue = "box") String mode,
+            ResponseOptions options) throws Exception {
+        BlurMode blurMode = blurMode(mode);
+        return cached(file, handle, options, OperationKey.of("blur").param("intensity", intensity).param("grayscale", grayscale).param("mode", blurMode),
+                img -> blurService.process(img, intensity, grayscale, blurMode));
     }
 
     @PostMapping("/sharpen")
     public ImageMatrixResponse sharpen(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("intensity") int intensity,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return sharpenService.apply(file.getBytes(), intensity, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            ResponseOptions options) throws Exception {
+        return cached(file, handle, options, OperationKey.of("sharpen").param("intensity", intensity).param("grayscale", grayscale),
+                img -> sharpenService.process(img, intensity, grayscale));
     }
 
     @PostMapping("/zoom")
     public ImageMatrixResponse zoom(
-            @RequestParam("image") MultipartFile file, 
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam("scale") double scale,
-            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale) throws Exception {
-        return zoomService.apply(file.getBytes(), scale, grayscale);
+            @RequestParam(value = "grayscale", defaultValue = "false") boolean grayscale,
+            @RequestParam(value = "interpolation", defaultValue = "nearest") String interpolation,
+            @RequestParam(value = "viewportX", required = false) Integer viewportX,
+            @RequestParam(value = "viewportY", required = false) Integer viewportY,
+            @RequestParam(value = "viewportWidth", required = false) Integer viewportWidth,
+            @RequestParam(value = "viewportHeight", required = false) Integer viewportHeight,
+            ResponseOptions options) throws Exception {
+        Interpolation mode = interpolation(interpolation);
+
+        // Optional viewport in zoomed-output coordinates: all four values or none
+        Rectangle viewport = null;
+        if (viewportX != null || viewportY != null || viewportWidth != null || viewportHeight != null) {
+            if (viewportX == null || viewportY == null || viewportWidth == null || viewportHeight == null
+                    || viewportWidth <= 0 || viewportHeight <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "viewportX, viewportY, viewportWidth and viewportHeight must be given together.");
+            }
+            viewport = new Rectangle(viewportX, viewportY, viewportWidth, viewportHeight);
+        }
+        Rectangle window = viewport;
+
+        OperationKey key = OperationKey.of("zoom").param("scale", scale).param("grayscale", grayscale).param("interpolation", mode);
+        if (window != null) {
+            key.param("viewport", window.x + "," + window.y + "," + window.width + "," + window.height);
+        }
+        try {
+            return cached(file, handle, options, key, img -> zoomService.process(img, scale, grayscale, mode, window));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs an ordered list of operations on one image with a single decode and encode, e.g.
+     * operations=[{"type":"crop","params":{"x":0,"y":0,"w":300,"h":300}},{"type":"sharpen","params":{"intensity":2}}].
+     * Types and parameters match the single-operation endpoints; see {@link BatchService}.
+     */
+    @PostMapping("/batch")
+    public BatchResponse batch(
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
+            @RequestParam("operations") String operationsJson,
+            ResponseOptions options) throws Exception {
+        long start = System.nanoTime();
+        List<OperationDTO> ops;
+        try {
+            ops = jsonMapper.readValue(operationsJson, new TypeReference<List<OperationDTO>>() {});
+        } catch (JacksonException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed operations JSON: " + e.getOriginalMessage());
+        }
+        if (ops == null) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "operations must be a JSON array.");
+        ResponseEncoder.Encoding encoding = responseEncoder.resolve(options);
+
+        PixelBuffer img = source(file, handle);
+        long decoded = System.nanoTime();
+        List<StepTiming> steps = new ArrayList<>();
+        try {
+            img = batchService.run(img, ops, steps);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        long processed = System.nanoTime();
+        ImageMatrixResponse res = responseEncoder.toResponse(img, encoding);
+        if (!options.isMatrix()) res = res.withoutLinear();
+        long end = System.nanoTime();
+        return new BatchResponse(res, steps, (decoded - start) / 1e6, (end - processed) / 1e6, (end - start) / 1e6);
     }
 
+    /**
+     * Image layers either embed a base64 "imageData" data URL or set "imageRef" to the name
+     * of another multipart part carrying the raw image bytes.
+     */
     @PostMapping("/composite-layers")
     public ImageMatrixResponse compositeLayers(
-            @RequestParam("image") MultipartFile file,
-            @RequestParam("layers") String layersJson) throws Exception {
-        return imagePipelineService.compositeLayers(file.getBytes(), layersJson);
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
+            @RequestParam("layers") String layersJson,
+            @RequestParam Map<String, MultipartFile> files,
+            ResponseOptions options) throws Exception {
+        OperationKey key = OperationKey.of("composite-layers").param("layers", HashUtil.sha256(layersJson.getBytes(StandardCharsets.UTF_8)));
+
+        // Referenced parts are identified by content, so they belong in the result key
+        Map<String, ImagePipelineService.LayerPart> parts = new TreeMap<>();
+        for (Map.Entry<String, MultipartFile> e : files.entrySet()) {
+            if (!e.getKey().equals("image")) parts.put(e.getKey(), new ImagePipelineService.LayerPart(e.getValue().getBytes()));
+        }
+        if (!parts.isEmpty()) {
+            StringBuilder ids = new StringBuilder();
+            parts.forEach((name, part) -> ids.append(name).append('=').append(part.hash).append(';'));
+            key.param("parts", ids);
+        }
+        try {
+            return cached(file, handle, options, key,
+                    (imageKey, source) -> imagePipelineService.compositeLayers(imageKey, source, layersJson, parts));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     /**
@@ -154,10 +427,80 @@ public class ImageController {
 // }
 @PostMapping("/remove-background")
     public ImageMatrixResponse removeBackground(
-            @RequestParam("image") MultipartFile file,
+            @RequestParam(value = "image", required = false) MultipartFile file,
+            @RequestParam(value = "handle", required = false) String handle,
             @RequestParam(value = "mode", defaultValue = "ai") String mode,
-            @RequestParam(value = "sensitivity", defaultValue = "30") int sensitivity) throws Exception {
-        
-        return backgroundRemovalService.apply(file.getBytes(), mode, sensitivity);
+            @RequestParam(value = "sensitivity", defaultValue = "30") int sensitivity,
+            ResponseOptions options) throws Exception {
+        // Cached under the engine that actually produced the result, so a worker failure
+        // (manual fallback) never pins a degraded result under the AI key
+        if (backgroundRemovalService.usesAi(mode)) {
+            try {
+                return cached(file, handle, options, OperationKey.of("remove-background").param("engine", "ai"),
+                        img -> backgroundRemovalService.processAi(img));
+            } catch (ResponseStatusException e) {
+                throw e;
+            } catch (Exception e) {
+                // Fall back to the manual algorithm below
+            }
+        }
+        int s = BackgroundRemovalService.effectiveSensitivity(sensitivity);
+        return cached(file, handle, options,
+                OperationKey.of("remove-background").param("engine", "manual").param("sensitivity", s),
+                img -> backgroundRemovalService.processManual(img, s));
+    }
+
+    /**
+     * Runs op on the source raster unless the result cache already holds the response for
+     * this (image content, operation) pair, in which case nothing is decoded or encoded.
+     */
+    private ImageMatrixResponse cached(MultipartFile file, String handle, ResponseOptions options,
+                                      OperationKey key, RasterOp op) throws Exception {
+        return cached(file, handle, options, key, (imageKey, source) -> op.apply(source.call()));
+    }
+
+    // As above, for operations that may not need the source raster at all (it is loaded on demand)
+    private ImageMatrixResponse cached(MultipartFile file, String handle, ResponseOptions options,
+                                      OperationKey key, KeyedRasterOp op) throws Exception {
+        byte[] bytes = (file == null) ? null : file.getBytes();
+        String imageKey = imageHandleService.contentKey(bytes, handle);
+        // The encoding is part of the result, so differently encoded responses are cached apart
+        ResponseEncoder.Encoding encoding = responseEncoder.resolve(options);
+        ImageMatrixResponse res = resultCache.get(imageKey, key.param("encoding", encoding),
+                () -> responseEncoder.toResponse(op.apply(imageKey, () -> imageHandleService.resolve(bytes, handle)), encoding));
+        return options.isMatrix() ? res : res.withoutLinear();
+    }
+
+    @FunctionalInterface
+    private interface RasterOp {
+        PixelBuffer apply(PixelBuffer img) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface KeyedRasterOp {
+        PixelBuffer apply(String imageKey, Callable<PixelBuffer> source) throws Exception;
+    }
+
+    // nearest | bilinear | bicubic
+    private Interpolation interpolation(String name) {
+        try {
+            return Interpolation.parse(name);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Uploaded bytes take precedence over a handle
+    private PixelBuffer source(MultipartFile file, String handle) throws IOException {
+        return imageHandleService.resolve(file == null ? null : file.getBytes(), handle);
+    }
+
+    // box | gaussian
+    private BlurMode blurMode(String name) {
+        try {
+            return BlurMode.parse(name);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.backend.models;
+
+import java.util.List;
+
+// Final image of a /batch run plus where the time went
+public class BatchResponse {
+    public ImageMatrixResponse result;
+    public List<StepTiming> steps;
+    public double decodeMillis;
+    public double encodeMillis;
+    public double totalMillis;
+
+    public BatchResponse(ImageMatrixResponse result, List<StepTiming> steps,
+                         double decodeMillis, double encodeMillis, double totalMillis) {
+        this.result = result;
+        this.steps = steps;
+        this.decodeMillis = decodeMillis;
+        this.encodeMillis = encodeMillis;
+        this.totalMillis = totalMillis;
+    }
+}
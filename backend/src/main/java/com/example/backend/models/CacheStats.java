@@ -0,0 +1,19 @@
+package com.example.backend.models;
+
+public class CacheStats {
+    public long hits;
+    public long misses;
+    public long evictions;
+    public long entries;
+    public long bytes;
+    public long maxBytes;
+
+    public CacheStats(long hits, long misses, long evictions, long entries, long bytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.bytes = bytes;
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.backend.models;
+
+public class ImageHandleResponse {
+    public String handle;
+    public int width;
+    public int height;
+
+    public ImageHandleResponse(String handle, int width, int height) {
+        this.handle = handle;
+        this.width = width;
+        this.height = height;
+    }
+}
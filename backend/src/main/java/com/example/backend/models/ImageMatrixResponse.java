@@ -5,6 +5,10 @@ public class ImageMatrixResponse {
     public int[] linear;
     public int width;
     public int height;
+    // Result-cache id; pass to /matrix/window to fetch pixels without the full matrix
+    public String resultId;
+    // Encoding of `image`: "png" or "jpeg"
+    public String format = "png";
 
     public ImageMatrixResponse(byte[] image, int[] linear, int width, int height) {
         this.image = image;
@@ -12,4 +16,12 @@ public class ImageMatrixResponse {
         this.width = width;
         this.height = height;
     }
+
+    // Same result with the full matrix left out (linear = null)
+    public ImageMatrixResponse withoutLinear() {
+        ImageMatrixResponse r = new ImageMatrixResponse(image, null, width, height);
+        r.resultId = resultId;
+        r.format = format;
+        return r;
+    }
 }
@@ -0,0 +1,23 @@
+package com.example.backend.models;
+
+public class MatrixWindowResponse {
+    // Top-left corner and size of the returned window, clipped to the image
+    public int x;
+    public int y;
+    public int width;
+    public int height;
+    // Row-major ARGB values of the window
+    public int[] values;
+    public int imageWidth;
+    public int imageHeight;
+
+    public MatrixWindowResponse(int x, int y, int width, int height, int[] values, int imageWidth, int imageHeight) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.values = values;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+    }
+}
@@ -32,12 +32,15 @@ public class OperationDTO {
         this.params = params;
     }
 
-    // Helper methods to get parameters with defaults
+    public boolean hasParam(String key) {
+        return params != null && params.get(key) != null;
+    }
+
+    // Helper methods to get parameters with defaults (JSON numbers may arrive as any Number type)
     public int getIntParam(String key, int defaultValue) {
         Object value = params.get(key);
         if (value == null) return defaultValue;
-        if (value instanceof Integer) return (Integer) value;
-        if (value instanceof Double) return ((Double) value).intValue();
+        if (value instanceof Number) return ((Number) value).intValue();
         if (value instanceof String) {
             try {
                 return Integer.parseInt((String) value);
@@ -51,8 +54,7 @@ public class OperationDTO {
     public double getDoubleParam(String key, double defaultValue) {
         Object value = params.get(key);
         if (value == null) return defaultValue;
-        if (value instanceof Double) return (Double) value;
-        if (value instanceof Integer) return ((Integer) value).doubleValue();
+        if (value instanceof Number) return ((Number) value).doubleValue();
         if (value instanceof String) {
             try {
                 return Double.parseDouble((String) value);
@@ -66,9 +68,7 @@ public class OperationDTO {
     public float getFloatParam(String key, float defaultValue) {
         Object value = params.get(key);
         if (value == null) return defaultValue;
-        if (value instanceof Float) return (Float) value;
-        if (value instanceof Double) return ((Double) value).floatValue();
-        if (value instanceof Integer) return ((Integer) value).floatValue();
+        if (value instanceof Number) return ((Number) value).floatValue();
         if (value instanceof String) {
             try {
                 return Float.parseFloat((String) value);
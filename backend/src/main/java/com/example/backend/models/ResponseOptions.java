@@ -0,0 +1,56 @@
+package com.example.backend.models;
+
+/**
+ * Per-request response shaping, bound from optional request parameters
+ * shared by every operation endpoint.
+ */
+public class ResponseOptions {
+    // Include the full `linear` matrix; off by default, clients that need it ask with matrix=true
+    private boolean matrix;
+
+    // Output encoding; anything left null falls back to the pixel.output.* defaults
+    private String format;       // png | jpeg
+    private String compression;  // PNG deflate level 0-9, or fast / none / default
+    private String filter;       // PNG scanline filter: none | sub | up | average | paeth | adaptive
+    private Integer quality;     // JPEG quality 1-100
+
+    public boolean isMatrix() {
+        return matrix;
+    }
+
+    public void setMatrix(boolean matrix) {
+        this.matrix = matrix;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public String getFilter() {
+        return filter;
+    }
+
+    public void setFilter(String filter) {
+        this.filter = filter;
+    }
+
+    public Integer getQuality() {
+        return quality;
+    }
+
+    public void setQuality(Integer quality) {
+        this.quality = quality;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.models;
+
+// Wall time of one /batch step and the size of the raster it produced
+public class StepTiming {
+    public String type;
+    public double millis;
+    public int width;
+    public int height;
+    // Folded into the next geometric step's single resampling pass (millis is then 0)
+    public boolean fused;
+
+    public StepTiming(String type, double millis, int width, int height) {
+        this.type = type;
+        this.millis = millis;
+        this.width = width;
+        this.height = height;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.models;
+
+// Layout of an image's tile pyramid; level 0 is full resolution, each level halves both sides
+public class TilePyramidInfo {
+    public String handle;
+    public int width;
+    public int height;
+    public int tileSize;
+    public int levels;
+
+    public TilePyramidInfo(String handle, int width, int height, int tileSize, int levels) {
+        this.handle = handle;
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.levels = levels;
+    }
+}
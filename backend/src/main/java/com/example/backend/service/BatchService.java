@@ -0,0 +1,243 @@
+package com.example.backend.service;
+
+import com.example.backend.models.OperationDTO;
+import com.example.backend.models.StepTiming;
+import com.example.backend.service.basic.BrightnessService;
+import com.example.backend.service.basic.ContrastService;
+import com.example.backend.service.basic.GrayscaleService;
+import com.example.backend.service.core.BlurMode;
+import com.example.backend.service.core.Interpolation;
+import com.example.backend.service.core.MatrixTransformEngine;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.TransformChain;
+import com.example.backend.service.filters.BlurService;
+import com.example.backend.service.filters.SharpenService;
+import com.example.backend.service.geometric.FlipService;
+import com.example.backend.service.geometric.RotateService;
+import com.example.backend.service.geometric.ZoomService;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs an ordered list of operations on one raster. Every step calls the same raster-level
+ * service method as its single-operation endpoint, so the image is decoded and encoded
+ * once per batch instead of once per step. Types and parameter names match the endpoints
+ * (e.g. {"type": "rotate", "params": {"angle": 90, "interpolation": "bilinear"}}).
+ *
+ * Consecutive rotate/flip/zoom steps are folded into one {@link TransformChain} and
+ * resampled once; a run that cancels out (e.g. two opposite quarter turns) costs nothing.
+ * As on /zoom, pixel.zoom.max-output-pixels only limits runs that contain a zoom.
+ */
+@Service
+public class BatchService {
+
+    private final GrayscaleService grayscaleService;
+    private final BrightnessService brightnessService;
+    private final ContrastService contrastService;
+    private final RotateService rotateService;
+    private final ZoomService zoomService;
+    private final FlipService flipService;
+    private final BlurService blurService;
+    private final SharpenService sharpenService;
+    private final CropService cropService;
+    private final BackgroundRemovalService backgroundRemovalService;
+    private final MatrixTransformEngine engine;
+
+    public BatchService(
+            GrayscaleService grayscaleService,
+            BrightnessService brightnessService,
+            ContrastService contrastService,
+            RotateService rotateService,
+            ZoomService zoomService,
+            FlipService flipService,
+            BlurService blurService,
+            SharpenService sharpenService,
+            CropService cropService,
+            BackgroundRemovalService backgroundRemovalService,
+            MatrixTransformEngine engine) {
+        this.grayscaleService = grayscaleService;
+        this.brightnessService = brightnessService;
+        this.contrastService = contrastService;
+        this.rotateService = rotateService;
+        this.zoomService = zoomService;
+        this.flipService = flipService;
+        this.blurService = blurService;
+        this.sharpenService = sharpenService;
+        this.cropService = cropService;
+        this.backgroundRemovalService = backgroundRemovalService;
+        this.engine = engine;
+    }
+
+    /**
+     * Applies ops in order and appends one timing per step. img is never modified.
+     * Unknown types, missing required parameters and invalid values throw IllegalArgumentException.
+     */
+    public PixelBuffer run(PixelBuffer img, List<OperationDTO> ops, List<StepTiming> timings) {
+        Chain chain = new Chain();
+        for (OperationDTO op : ops) {
+            if (op == null || op.getType() == null) throw new IllegalArgumentException("Every operation needs a type.");
+            if (op.getParams() == null) op.setParams(new HashMap<>());
+
+            // Geometric steps only extend the pending chain; their cost shows up on the step that ends it
+            if (isGeometric(op)) {
+                Interpolation mode = op.getType().startsWith("flip/") ? null : interpolation(op);
+                if (chain.transform != null && !chain.accepts(mode)) img = chain.flush(img, timings);
+                if (chain.transform == null) chain.transform = TransformChain.of(img);
+                extend(chain, op, mode);
+                StepTiming t = new StepTiming(op.getType(), 0, chain.transform.width(), chain.transform.height());
+                t.fused = true;
+                timings.add(t);
+                continue;
+            }
+            img = chain.flush(img, timings);
+
+            long start = System.nanoTime();
+            img = apply(img, op);
+            timings.add(new StepTiming(op.getType(), (System.nanoTime() - start) / 1e6, img.width(), img.height()));
+        }
+        return chain.flush(img, timings);
+    }
+
+    // Steps that are a pure matrix on the raster; a grayscale toggle converts before the
+    // resample, so those steps run on their own to keep the single-endpoint pixels
+    private static boolean isGeometric(OperationDTO op) {
+        switch (op.getType()) {
+            case "rotate":
+            case "flip/horizontal":
+            case "flip/vertical":
+            case "zoom":
+                return !booleanParam(op, "grayscale", false);
+            default:
+                return false;
+        }
+    }
+
+    private static void extend(Chain chain, OperationDTO op, Interpolation mode) {
+        switch (op.getType()) {
+            case "rotate":          chain.transform.rotate(requireDouble(op, "angle")); break;
+            case "flip/horizontal": chain.transform.flipHorizontal(); break;
+            case "flip/vertical":   chain.transform.flipVertical(); break;
+            default:
+                chain.transform.scale(requireDouble(op, "scale"));
+                chain.zoomed = true;
+                break;
+        }
+        if (mode != null) chain.mode = mode;
+    }
+
+    // Pending geometric run: one matrix, one sampling mode (flips fit any mode)
+    private final class Chain {
+        TransformChain transform;
+        Interpolation mode;
+        boolean zoomed;
+
+        boolean accepts(Interpolation next) {
+            return next == null || mode == null || next == mode;
+        }
+
+        PixelBuffer flush(PixelBuffer img, List<StepTiming> timings) {
+            if (transform == null) return img;
+            if (zoomed) zoomService.checkOutputSize(transform.width(), transform.height());
+            long start = System.nanoTime();
+            // Nothing downstream writes into its input, so an identity run can pass img through uncopied
+            PixelBuffer out = transform.isIdentity() ? img
+                    : engine.apply(img, transform, (mode == null) ? Interpolation.NEAREST : mode);
+            // The last folded step carries the time of the whole pass
+            StepTiming last = timings.get(timings.size() - 1);
+            last.millis = (System.nanoTime() - start) / 1e6;
+            last.fused = false;
+            transform = null;
+            mode = null;
+            zoomed = false;
+            return out;
+        }
+    }
+
+    private PixelBuffer apply(PixelBuffer img, OperationDTO op) {
+        boolean grayscale = booleanParam(op, "grayscale", false);
+        switch (op.getType()) {
+            case "crop":
+                int x = intParam(op, "x", 0), y = intParam(op, "y", 0);
+                return cropService.process(img, x, y, requireInt(op, "w"), requireInt(op, "h"), grayscale);
+            case "grayscale":
+                return grayscaleService.process(img);
+            case "brightness":
+                return brightnessService.process(img, requireInt(op, "level"), grayscale);
+            case "contrast":
+                return contrastService.process(img, requireInt(op, "level"), grayscale);
+            case "rotate":
+                return rotateService.process(img, requireDouble(op, "angle"), grayscale, interpolation(op));
+            case "flip/horizontal":
+                return flipService.horizontal(img, grayscale);
+            case "flip/vertical":
+                return flipService.vertical(img, grayscale);
+            case "blur":
+                return blurService.process(img, requireInt(op, "intensity"), grayscale, BlurMode.parse(op.getStringParam("mode", "box")));
+            case "sharpen":
+                return sharpenService.process(img, requireInt(op, "intensity"), grayscale);
+            case "zoom":
+                return zoomService.process(img, requireDouble(op, "scale"), grayscale, interpolation(op));
+            case "remove-background":
+                return backgroundRemovalService.process(img, op.getStringParam("mode", "ai"), intParam(op, "sensitivity", 30));
+            default:
+                throw new IllegalArgumentException("Unknown operation type: " + op.getType());
+        }
+    }
+
+    private static Interpolation interpolation(OperationDTO op) {
+        return Interpolation.parse(op.getStringParam("interpolation", "nearest"));
+    }
+
+    // Strict counterparts of the OperationDTO getters, which fall back to the default on bad input
+
+    private static int intParam(OperationDTO op, String key, int defaultValue) {
+        return op.hasParam(key) ? requireInt(op, key) : defaultValue;
+    }
+
+    private static int requireInt(OperationDTO op, String key) {
+        Object v = require(op, key);
+        if (v instanceof Number n) {
+            double d = n.doubleValue();
+            if (d == Math.rint(d) && Math.abs(d) <= Integer.MAX_VALUE) return (int) d;
+        } else if (v instanceof String str) {
+            try {
+                return Integer.parseInt(str.trim());
+            } catch (NumberFormatException ignored) {}
+        }
+        throw invalid(op, key, "an integer", v);
+    }
+
+    private static double requireDouble(OperationDTO op, String key) {
+        Object v = require(op, key);
+        double d = Double.NaN;
+        if (v instanceof Number n) {
+            d = n.doubleValue();
+        } else if (v instanceof String str) {
+            try {
+                d = Double.parseDouble(str.trim());
+            } catch (NumberFormatException ignored) {}
+        }
+        if (!Double.isFinite(d)) throw invalid(op, key, "a number", v);
+        return d;
+    }
+
+    private static boolean booleanParam(OperationDTO op, String key, boolean defaultValue) {
+        if (!op.hasParam(key)) return defaultValue;
+        Object v = op.getParams().get(key);
+        if (v instanceof Boolean b) return b;
+        if ("true".equalsIgnoreCase(String.valueOf(v))) return true;
+        if ("false".equalsIgnoreCase(String.valueOf(v))) return false;
+        throw invalid(op, key, "true or false", v);
+    }
+
+    private static Object require(OperationDTO op, String key) {
+        if (!op.hasParam(key)) throw new IllegalArgumentException(op.getType() + " needs parameter '" + key + "'.");
+        return op.getParams().get(key);
+    }
+
+    private static IllegalArgumentException invalid(OperationDTO op, String key, String expected, Object value) {
+        return new IllegalArgumentException(op.getType() + " parameter '" + key + "' must be " + expected + ", got " + value + ".");
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.backend.service;
 
-import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
 import java.io.IOException;
 
 import org.springframework.stereotype.Service;
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.core.PixelBuffer;
 import com.example.backend.service.util.ImageUtil;
 import com.example.backend.service.basic.GrayscaleService; // Added
 
@@ -19,35 +20,41 @@ public class CropService {
     }
 
     public ImageMatrixResponse applyCrop(byte[] bytes, int x, int y, int w, int h, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
-        
-        // Toggle Fix: Convert to grayscale BEFORE cropping 
-        // This ensures the cropped pixels returned in the response are grayscale values
-        if (grayscale) {
-            img = grayscaleService.process(img);
-        }
+        return ImageUtil.toResponse(process(bytes, x, y, w, h, grayscale));
+    }
+
+    /**
+     * Crops straight from encoded bytes: only the requested region is decoded, so a small
+     * crop of a huge scan needs memory for the crop, not for the whole image.
+     */
+    public PixelBuffer process(byte[] bytes, int x, int y, int w, int h, boolean grayscale) throws IOException {
+        checkOrigin(x, y, w, h);
+        PixelBuffer region = ImageUtil.decodeRegion(bytes, new Rectangle(x, y, w, h));
+        if (region == null) throw new IllegalArgumentException("Crop rectangle is outside the image.");
+        return grayscale ? grayscaleService.process(region) : region;
+    }
 
-        int srcW = img.getWidth();
-        int srcH = img.getHeight();
+    // Raster-level entry point: returns a new buffer, src is left untouched
+    public PixelBuffer process(PixelBuffer img, int x, int y, int w, int h, boolean grayscale) {
+        int srcW = img.width();
+        int srcH = img.height();
+        checkOrigin(x, y, w, h);
+        if (x >= srcW || y >= srcH) throw new IllegalArgumentException("Crop rectangle is outside the image.");
 
         // Prevent out-of-bounds errors
         int actualW = Math.min(w, srcW - x);
         int actualH = Math.min(h, srcH - y);
 
-        // Extracting raw pixel data from the (potentially grayscaled) image
-        int[] pixels = img.getRGB(0, 0, srcW, srcH, null, 0, srcW);
-        int[] croppedPixels = subMatrixService.extractSubMatrix(pixels, srcW, srcH, x, y, actualW, actualH);
+        PixelBuffer resultImg = PixelBuffer.create(actualW, actualH);
+        subMatrixService.copySubMatrix(img.data(), srcW, x, y, actualW, actualH, resultImg.data());
 
-        
-
-        BufferedImage resultImg = new BufferedImage(actualW, actualH, BufferedImage.TYPE_INT_ARGB);
-        resultImg.setRGB(0, 0, actualW, actualH, croppedPixels, 0, actualW);
+        // Grayscale is per pixel, so converting only the cropped pixels gives the same values
+        return grayscale ? grayscaleService.process(resultImg) : resultImg;
+    }
 
-        return new ImageMatrixResponse(
-            ImageUtil.encode(resultImg), 
-            croppedPixels, 
-            actualW, 
-            actualH
-        );
+    private static void checkOrigin(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w <= 0 || h <= 0) {
+            throw new IllegalArgumentException("Crop rectangle is outside the image.");
+        }
     }
-}
\ No newline at end of file
+}
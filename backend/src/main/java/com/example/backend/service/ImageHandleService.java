@@ -0,0 +1,72 @@
+package com.example.backend.service;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.models.ImageHandleResponse;
+import com.example.backend.service.cache.DecodedImageCache;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.util.HashUtil;
+import com.example.backend.service.util.ImageUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * Upload-once image handles. A handle is the SHA-256 of the uploaded bytes; the
+ * decoded raster is kept in {@link DecodedImageCache} until it is evicted, after
+ * which the client gets a 404 and simply uploads again.
+ */
+@Service
+public class ImageHandleService {
+
+    private final DecodedImageCache cache;
+
+    public ImageHandleService(DecodedImageCache cache) {
+        this.cache = cache;
+    }
+
+    public ImageHandleResponse upload(byte[] bytes) throws IOException {
+        String handle = HashUtil.sha256(bytes);
+        PixelBuffer img = cache.get(handle);
+        if (img == null) {
+            img = ImageUtil.decodeBuffer(bytes);
+            cache.put(handle, img);
+        }
+        return new ImageHandleResponse(handle, img.width(), img.height());
+    }
+
+    /**
+     * Source raster for an operation: the uploaded bytes when present, otherwise the
+     * cached raster for the handle. The returned buffer may be shared and must not be modified.
+     */
+    public PixelBuffer resolve(byte[] bytes, String handle) throws IOException {
+        if (bytes != null) {
+            return ImageUtil.decodeBuffer(bytes);
+        }
+        if (handle == null || handle.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either 'image' or 'handle' is required");
+        }
+        PixelBuffer img = cache.get(handle);
+        if (img == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired image handle: " + handle);
+        }
+        return img;
+    }
+
+    /**
+     * Strong content key for the source image without decoding it: the handle itself
+     * (already a SHA-256) or the SHA-256 of the uploaded bytes.
+     */
+    public String contentKey(byte[] bytes, String handle) {
+        if (bytes != null) return HashUtil.sha256(bytes);
+        if (handle == null || handle.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either 'image' or 'handle' is required");
+        }
+        return handle;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
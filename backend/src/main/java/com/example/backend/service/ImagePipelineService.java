@@ -1,19 +1,32 @@
 package com.example.backend.service;
 
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.cache.LayerImageCache;
+import com.example.backend.service.cache.LayerStackCache;
 import com.example.backend.service.basic.*;
+import com.example.backend.service.core.BlurMode;
+import com.example.backend.service.core.Compositor;
+import com.example.backend.service.core.LinearGradient;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelKernelProvider;
+import com.example.backend.service.core.PointLut;
+import com.example.backend.service.core.TileScheduler;
 import com.example.backend.service.filters.*;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.util.HashUtil;
 import com.example.backend.service.util.ImageUtil;
 import org.springframework.stereotype.Service;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 @Service
 public class ImagePipelineService {
@@ -23,49 +36,236 @@ public class ImagePipelineService {
     private final ContrastService contrastService;
     private final BlurService blurService;
     private final SharpenService sharpenService;
+    private final TileScheduler scheduler;
+    private final PixelKernelProvider kernels;
+    private final LayerImageCache layerImageCache;
+    private final LayerStackCache layerStackCache;
 
     public ImagePipelineService(
             GrayscaleService grayscaleService,
             BrightnessService brightnessService,
             ContrastService contrastService,
             BlurService blurService,
-            SharpenService sharpenService) {
+            SharpenService sharpenService,
+            TileScheduler scheduler,
+            PixelKernelProvider kernels,
+            LayerImageCache layerImageCache,
+            LayerStackCache layerStackCache) {
         this.grayscaleService = grayscaleService;
         this.brightnessService = brightnessService;
         this.contrastService = contrastService;
         this.blurService = blurService;
         this.sharpenService = sharpenService;
+        this.scheduler = scheduler;
+        this.kernels = kernels;
+        this.layerImageCache = layerImageCache;
+        this.layerStackCache = layerStackCache;
     }
 
     public ImageMatrixResponse compositeLayers(byte[] baseImageBytes, String layersJson) throws Exception {
-        BufferedImage baseImage = ImageUtil.decode(baseImageBytes);
-        int width = baseImage.getWidth();
-        int height = baseImage.getHeight();
+        // 1. Decode once; every layer below works on the in-memory raster
+        return ImageUtil.toResponse(compositeLayers(ImageUtil.decodeBuffer(baseImageBytes), layersJson));
+    }
 
-        // 1. Parse Layers (Ensures sequential order from JSON array)
-        List<LayerData> layers = parseLayersJson(layersJson);
-        
-        // 2. Start with a clean copy of the base as the "Canvas"
-        BufferedImage canvas = copyImage(baseImage);
+    // Raster-level entry point without a base key, so no intermediate canvases are cached
+    public PixelBuffer compositeLayers(PixelBuffer base, String layersJson) throws Exception {
+        return compositeLayers(null, () -> base, layersJson, Map.of());
+    }
+
+    /**
+     * Layers blend in place into one private copy, so the base is never modified. With a
+     * baseKey (the image's content hash) the canvas after the topmost layers, and after
+     * layers spaced down the stack, is kept in the stack cache, and a request sharing a
+     * prefix with an earlier one starts from the deepest cached canvas; the base is only
+     * loaded when no prefix is cached.
+     *
+     * Image layers carry either a base64 imageData URL or an imageRef naming one of parts.
+     */
+    public PixelBuffer compositeLayers(String baseKey, Callable<PixelBuffer> base, String layersJson,
+                                       Map<String, LayerPart> parts) throws Exception {
+        // 2. Parse Layers (Ensures sequential order from JSON array)
+        List<LayerData> layers = LayerJsonParser.parse(layersJson);
+        hashImageLayers(layers, parts);
+
+        String[] prefix = (baseKey == null) ? null : prefixKeys(baseKey, layers);
+        int from = 0;
+        PixelBuffer canvas = null;
+        for (int i = layers.size(); prefix != null && i > 0 && canvas == null; i--) {
+            PixelBuffer hit = layerStackCache.get(prefix[i]);
+            if (hit != null) {
+                canvas = hit.copy();
+                from = i;
+            }
+        }
+        if (canvas == null) canvas = base.call().copy();
+        boolean[] keep = checkpointed(layers, (prefix != null && layerStackCache.accepts(canvas))
+                ? layerStackCache.checkpoints() : 0);
+        Map<String, Future<PixelBuffer>> images = prepareImageLayers(layers, parts, from, canvas.width(), canvas.height());
 
         // 3. Process each layer strictly in the order received (Bottom -> Top)
+        try {
+            PointLut pending = null;
+            boolean keepPending = false;
+            for (int i = from; i < layers.size(); i++) {
+                LayerData layer = layers.get(i);
+                if (!layer.visible) continue;
+
+                // Consecutive opaque point filters are fused into one lookup table; a checkpoint
+                // inside the run is taken once the whole run is applied
+                PointLut lut = fusablePointLut(layer);
+                if (lut != null) {
+                    pending = (pending == null) ? lut : pending.then(lut);
+                    keepPending |= keep[i];
+                    continue;
+                }
+                if (pending != null) {
+                    canvas = applyPointLut(canvas, pending);
+                    if (keepPending) layerStackCache.put(prefix[i], canvas.copy());
+                    pending = null;
+                    keepPending = false;
+                }
+
+                // Each step blends into the canvas buffer in place
+                canvas = applyLayer(canvas, layer, images);
+                if (keep[i]) layerStackCache.put(prefix[i + 1], canvas.copy());
+            }
+            // 4. Caller encodes exactly once, at the end of the stack
+            if (pending != null) {
+                canvas = applyPointLut(canvas, pending);
+                if (keepPending) layerStackCache.put(prefix[layers.size()], canvas.copy());
+            }
+            return canvas;
+        } finally {
+            // Only does anything when a layer failed before every image was needed
+            for (Future<PixelBuffer> f : images.values()) f.cancel(false);
+        }
+    }
+
+    // prefix[i] identifies the canvas after layers [0, i); hidden layers leave it unchanged
+    private static String[] prefixKeys(String baseKey, List<LayerData> layers) {
+        String[] prefix = new String[layers.size() + 1];
+        prefix[0] = baseKey;
         for (int i = 0; i < layers.size(); i++) {
             LayerData layer = layers.get(i);
-            if (!layer.visible) continue;
+            prefix[i + 1] = !layer.visible ? prefix[i]
+                    : HashUtil.sha256((prefix[i] + "\n" + layer.signature()).getBytes(StandardCharsets.UTF_8));
+        }
+        return prefix;
+    }
+
+    // Layers whose canvas is checkpointed: the topmost n visible ones, plus every
+    // ceil(visible / n)-th visible one below, so no edit re-runs more than that many layers
+    private static boolean[] checkpointed(List<LayerData> layers, int n) {
+        boolean[] keep = new boolean[layers.size()];
+        if (n <= 0) return keep;
+        int visible = 0;
+        for (LayerData layer : layers) {
+            if (layer.visible) visible++;
+        }
+        int stride = (visible + n - 1) / n;
+        for (int i = 0, seen = 0; i < layers.size(); i++) {
+            if (!layers.get(i).visible) continue;
+            seen++;
+            keep[i] = seen > visible - n || seen % stride == 0;
+        }
+        return keep;
+    }
+
+    // Content hash of each visible image layer: the part's bytes, or the base64 text streamed from the JSON
+    private static void hashImageLayers(List<LayerData> layers, Map<String, LayerPart> parts) {
+        for (LayerData layer : layers) {
+            if (!layer.visible || !layer.isImage()) continue;
+            if (layer.imageRef != null) {
+                layer.imageHash = part(parts, layer.imageRef).hash;
+            } else {
+                CharSequence dataUrl = layer.imageData;
+                layer.imageHash = HashUtil.sha256(dataUrl, payloadStart(dataUrl), dataUrl.length());
+            }
+        }
+    }
+
+    private static LayerPart part(Map<String, LayerPart> parts, String name) {
+        LayerPart part = parts.get(name);
+        if (part == null) throw new IllegalArgumentException("No multipart part named '" + name + "' for image layer.");
+        return part;
+    }
+
+    /**
+     * Looks up the image layers from index `from` on in the layer cache and starts decoding
+     * the misses on the tile pool, so they decode while the layers below them are composited.
+     */
+    private Map<String, Future<PixelBuffer>> prepareImageLayers(List<LayerData> layers, Map<String, LayerPart> parts,
+                                                                int from, int w, int h) {
+        Map<String, Future<PixelBuffer>> images = new HashMap<>();
+        for (LayerData layer : layers.subList(from, layers.size())) {
+            if (layer.imageHash == null) continue;
+            String key = LayerImageCache.key(layer.imageHash, w, h);
+            layer.imageKey = key;
+            if (images.containsKey(key)) continue;
+
+            PixelBuffer hit = layerImageCache.get(key);
+            if (hit != null) {
+                images.put(key, CompletableFuture.completedFuture(hit));
+                continue;
+            }
+            byte[] bytes = (layer.imageRef != null) ? part(parts, layer.imageRef).bytes : null;
+            CharSequence dataUrl = layer.imageData;
+            images.put(key, scheduler.submit(() -> loadImageLayer(
+                    (bytes != null) ? ImageUtil.decodeBuffer(bytes) : decodeDataUrl(dataUrl), key, w, h)));
+        }
+        return images;
+    }
 
-            // Each step OVERWRITES canvas with the new blended result
-            canvas = applyLayer(canvas, layer);
+    // Index just past the data URL's comma, or 0 for bare base64
+    private static int payloadStart(CharSequence dataUrl) {
+        for (int i = 0; i < dataUrl.length(); i++) {
+            if (dataUrl.charAt(i) == ',') return i + 1;
         }
+        return 0;
+    }
+
+    // base64 -> ImageIO, streamed; the MIME decoder skips line breaks and spaces
+    private static PixelBuffer decodeDataUrl(CharSequence dataUrl) throws Exception {
+        int start = payloadStart(dataUrl);
+        byte[] text = new byte[dataUrl.length() - start];
+        for (int i = 0; i < text.length; i++) text[i] = (byte) dataUrl.charAt(start + i);
+        return ImageUtil.decodeBuffer(Base64.getMimeDecoder().wrap(new ByteArrayInputStream(text)));
+    }
+
+    // Rescales to the canvas size unless it already matches, then caches the result
+    private PixelBuffer loadImageLayer(PixelBuffer img, String key, int w, int h) {
+        PixelBuffer resized = img;
+        if (img.width() != w || img.height() != h) {
+            resized = PixelBuffer.create(w, h);
+            Graphics2D g = resized.image().createGraphics();
+            g.drawImage(img.image(), 0, 0, w, h, null);
+            g.dispose();
+        }
+        layerImageCache.put(key, resized);
+        return resized;
+    }
 
-        return new ImageMatrixResponse(
-            ImageUtil.encode(canvas),
-            LinearMatrixUtil.toLinear(canvas),
-            width,
-            height
-        );
+    /**
+     * Brightness/contrast/grayscale layers at full opacity. Their output is opaque, and
+     * source-over of an opaque overlay at opacity 1 returns the overlay unchanged,
+     * so skipping the blend and composing the tables gives the same pixels.
+     */
+    private PointLut fusablePointLut(LayerData layer) {
+        if (!"filter".equals(layer.type) || layer.opacity < 1.0f || layer.filterType == null) return null;
+        switch (layer.filterType) {
+            case "brightness": return PointLut.brightness(layer.getIntParam("level", 0));
+            case "contrast":   return PointLut.contrast(layer.getIntParam("level", 0));
+            case "grayscale":  return PointLut.grayscale();
+            default:           return null;
+        }
     }
 
-    private BufferedImage applyLayer(BufferedImage canvas, LayerData layer) throws Exception {
+    private PixelBuffer applyPointLut(PixelBuffer canvas, PointLut lut) {
+        if (lut == null) return canvas;
+        return scheduler.run(kernels.point(lut), canvas);
+    }
+
+    private PixelBuffer applyLayer(PixelBuffer canvas, LayerData layer, Map<String, Future<PixelBuffer>> images) throws Exception {
         switch (layer.type) {
             case "color":
                 return blendColorLayer(canvas, layer.color, layer.opacity);
@@ -73,7 +273,7 @@ public class ImagePipelineService {
                 return blendGradientLayer(canvas, layer.gradientStart, layer.gradientEnd, 
                                          layer.gradientAngle, layer.opacity);
             case "image":
-                return blendImageLayer(canvas, layer.imageData, layer.opacity);
+                return (layer.imageKey == null) ? canvas : blendImages(canvas, await(images.get(layer.imageKey)), layer.opacity);
             case "filter":
                 return applyFilterToCanvas(canvas, layer);
             default:
@@ -81,22 +281,19 @@ public class ImagePipelineService {
         }
     }
 
-    private BufferedImage blendColorLayer(BufferedImage base, String colorHex, float opacity) {
-        int w = base.getWidth();
-        int h = base.getHeight();
-        BufferedImage overlay = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = overlay.createGraphics();
-        g.setColor(hexToColor(colorHex));
-        g.fillRect(0, 0, w, h);
-        g.dispose();
-        return blendImages(base, overlay, opacity);
+    // Constant source colour: no overlay raster is allocated
+    private PixelBuffer blendColorLayer(PixelBuffer base, String colorHex, float opacity) {
+        int w = base.width();
+        int color = hexToColor(colorHex).getRGB();
+        int op = Compositor.opacity(opacity);
+        if (op == 0) return base;
+        return scheduler.run((src, dst, y0, y1) -> Compositor.overColor(dst.data(), y0 * w, y1 * w, color, op), base);
     }
 
-    private BufferedImage blendGradientLayer(BufferedImage base, String start, String end, int angle, float opacity) {
-        int w = base.getWidth();
-        int h = base.getHeight();
-        BufferedImage overlay = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = overlay.createGraphics();
+    // Same end points as the old GradientPaint overlay, evaluated row by row
+    private PixelBuffer blendGradientLayer(PixelBuffer base, String start, String end, int angle, float opacity) {
+        int w = base.width();
+        int h = base.height();
         
         double rads = Math.toRadians(angle);
         double dist = Math.sqrt(w * w + h * h) / 2.0;
@@ -105,42 +302,36 @@ public class ImagePipelineService {
         int x2 = (int)(w/2.0 + dist * Math.cos(rads));
         int y2 = (int)(h/2.0 + dist * Math.sin(rads));
         
-        g.setPaint(new GradientPaint(x1, y1, hexToColor(start), x2, y2, hexToColor(end)));
-        g.fillRect(0, 0, w, h);
-        g.dispose();
-        
-        return blendImages(base, overlay, opacity);
+        LinearGradient gradient = new LinearGradient(x1, y1, hexToColor(start).getRGB(), x2, y2, hexToColor(end).getRGB());
+        int op = Compositor.opacity(opacity);
+        if (op == 0) return base;
+        return scheduler.run((src, dst, r0, r1) -> gradient.blend(dst.data(), w, r0, r1, op), base);
     }
 
-    private BufferedImage blendImageLayer(BufferedImage base, String dataUrl, float opacity) throws Exception {
-        String b64 = dataUrl.contains(",") ? dataUrl.substring(dataUrl.indexOf(",") + 1) : dataUrl;
-        BufferedImage img = ImageUtil.decode(Base64.getDecoder().decode(b64.replaceAll("\\s", "")));
-        
-        BufferedImage resized = new BufferedImage(base.getWidth(), base.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = resized.createGraphics();
-        g.drawImage(img, 0, 0, base.getWidth(), base.getHeight(), null);
-        g.dispose();
-        
-        return blendImages(base, resized, opacity);
+    private static PixelBuffer await(Future<PixelBuffer> image) throws Exception {
+        try {
+            return image.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
     }
 
-    private BufferedImage applyFilterToCanvas(BufferedImage canvas, LayerData layer) throws Exception {
-        byte[] canvasBytes = ImageUtil.encode(canvas);
-        BufferedImage filtered = null;
+    private PixelBuffer applyFilterToCanvas(PixelBuffer canvas, LayerData layer) {
+        PixelBuffer filtered = null;
         
-        // Filter logic modifies the accumulated stack
+        // Filter logic modifies the accumulated stack, raster in / raster out
         switch (layer.filterType) {
             case "brightness":
-                filtered = ImageUtil.decode(brightnessService.apply(canvasBytes, layer.getIntParam("level", 0), false).image);
+                filtered = brightnessService.process(canvas, layer.getIntParam("level", 0));
                 break;
             case "contrast":
-                filtered = ImageUtil.decode(contrastService.apply(canvasBytes, layer.getIntParam("level", 0), false).image);
+                filtered = contrastService.process(canvas, layer.getIntParam("level", 0));
                 break;
             case "blur":
-                filtered = ImageUtil.decode(blurService.apply(canvasBytes, layer.getIntParam("intensity", 0), false).image);
+                filtered = blurService.process(canvas, layer.getIntParam("intensity", 0), false, BlurMode.BOX);
                 break;
             case "sharpen":
-                filtered = ImageUtil.decode(sharpenService.apply(canvasBytes, layer.getIntParam("intensity", 0), false).image);
+                filtered = sharpenService.process(canvas, layer.getIntParam("intensity", 0), false);
                 break;
             case "grayscale":
                 filtered = grayscaleService.process(canvas);
@@ -151,49 +342,15 @@ public class ImagePipelineService {
     }
 
     /**
-     * CORRECTED SEQUENTIAL BLENDING
-     * Uses Standard Alpha Compositing: Result = Foreground * alpha + Background * (1 - alpha)
+     * Integer source-over of overlay onto canvas, written into canvas.
+     * Opacity 0 leaves the canvas untouched without reading the overlay.
      */
-    private BufferedImage blendImages(BufferedImage base, BufferedImage overlay, float opacity) {
-        int w = base.getWidth();
-        int h = base.getHeight();
-        BufferedImage res = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int argbB = base.getRGB(x, y);
-                int argbO = overlay.getRGB(x, y);
-
-                float aB = ((argbB >> 24) & 0xFF) / 255.0f;
-                float rB = ((argbB >> 16) & 0xFF) / 255.0f;
-                float gB = ((argbB >> 8) & 0xFF) / 255.0f;
-                float bB = (argbB & 0xFF) / 255.0f;
-
-                // Apply layer-wide opacity to the overlay's intrinsic alpha
-                float aO = (((argbO >> 24) & 0xFF) / 255.0f) * opacity;
-                float rO = ((argbO >> 16) & 0xFF) / 255.0f;
-                float gO = ((argbO >> 8) & 0xFF) / 255.0f;
-                float bO = (argbO & 0xFF) / 255.0f;
-
-                // Porter-Duff Source Over Equation
-                float outA = aO + aB * (1 - aO);
-                float outR = (outA > 0) ? (rO * aO + rB * aB * (1 - aO)) / outA : 0;
-                float outG = (outA > 0) ? (gO * aO + gB * aB * (1 - aO)) / outA : 0;
-                float outB = (outA > 0) ? (bO * aO + bB * aB * (1 - aO)) / outA : 0;
-
-                res.setRGB(x, y, ((int)(outA * 255) << 24) | ((int)(outR * 255) << 16) | 
-                                 ((int)(outG * 255) << 8) | (int)(outB * 255));
-            }
-        }
-        return res;
-    }
-
-    private BufferedImage copyImage(BufferedImage s) {
-        BufferedImage c = new BufferedImage(s.getWidth(), s.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = c.createGraphics();
-        g.drawImage(s, 0, 0, null);
-        g.dispose();
-        return c;
+    private PixelBuffer blendImages(PixelBuffer canvas, PixelBuffer overlay, float opacity) {
+        int op = Compositor.opacity(opacity);
+        if (op == 0) return canvas;
+        int w = canvas.width();
+        int[] over = overlay.data();
+        return scheduler.run((src, dst, y0, y1) -> kernels.get().over(dst.data(), over, y0 * w, y1 * w, op), canvas);
     }
 
     private Color hexToColor(String h) {
@@ -203,88 +360,14 @@ public class ImagePipelineService {
                          Integer.parseInt(h.substring(4,6),16));
     }
 
-    // --- MANUAL JSON PARSING LOGIC (NO LIBRARIES) ---
-
-    private List<LayerData> parseLayersJson(String json) {
-        List<LayerData> list = new ArrayList<>();
-        String content = json.trim();
-        if (content.startsWith("[")) content = content.substring(1);
-        if (content.endsWith("]")) content = content.substring(0, content.length() - 1);
-        
-        int depth = 0;
-        int start = 0;
-        for (int i = 0; i < content.length(); i++) {
-            char c = content.charAt(i);
-            if (c == '{') { if (depth == 0) start = i; depth++; }
-            else if (c == '}') {
-                depth--;
-                if (depth == 0) {
-                    list.add(parseObject(content.substring(start + 1, i)));
-                }
-            }
-        }
-        return list;
-    }
-
-    private LayerData parseObject(String obj) {
-        LayerData l = new LayerData();
-        int depth = 0;
-        boolean inQuotes = false;
-        int start = 0;
-        for (int i = 0; i < obj.length(); i++) {
-            char c = obj.charAt(i);
-            if (c == '\"') inQuotes = !inQuotes;
-            if (!inQuotes) {
-                if (c == '{') depth++;
-                else if (c == '}') depth--;
-                else if (c == ',' && depth == 0) {
-                    processKV(l, obj.substring(start, i));
-                    start = i + 1;
-                }
-            }
-        }
-        processKV(l, obj.substring(start));
-        return l;
-    }
-
-    private void processKV(LayerData l, String kv) {
-        int split = kv.indexOf(":");
-        if (split == -1) return;
-        String k = kv.substring(0, split).trim().replace("\"", "");
-        String v = kv.substring(split + 1).trim();
-        String rawV = v.startsWith("\"") ? v.substring(1, v.length()-1) : v;
-
-        switch(k) {
-            case "type": l.type = rawV; break;
-            case "visible": l.visible = Boolean.parseBoolean(rawV); break;
-            case "opacity": l.opacity = Float.parseFloat(rawV); break;
-            case "color": l.color = rawV; break;
-            case "gradientStart": l.gradientStart = rawV; break;
-            case "gradientEnd": l.gradientEnd = rawV; break;
-            case "gradientAngle": l.gradientAngle = Integer.parseInt(rawV); break;
-            case "imageData": l.imageData = rawV; break;
-            case "filterType": l.filterType = rawV; break;
-            case "params": parseParams(l, v); break;
-        }
-    }
-
-    private void parseParams(LayerData l, String p) {
-        if (!p.contains("{")) return;
-        String inner = p.substring(p.indexOf("{") + 1, p.lastIndexOf("}"));
-        for (String pair : inner.split(",")) {
-            String[] kv = pair.split(":");
-            if (kv.length == 2) l.params.put(kv[0].trim().replace("\"", ""), kv[1].trim().replace("\"", ""));
-        }
-    }
+    // A binary image layer sent as its own multipart part; hashed once, up front
+    public static final class LayerPart {
+        public final byte[] bytes;
+        public final String hash;
 
-    private static class LayerData {
-        String type, color, gradientStart, gradientEnd, imageData, filterType;
-        boolean visible = true;
-        float opacity = 1.0f;
-        int gradientAngle = 90;
-        Map<String, String> params = new HashMap<>();
-        int getIntParam(String k, int d) {
-            try { return Integer.parseInt(params.get(k)); } catch(Exception e) { return d; }
+        public LayerPart(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = HashUtil.sha256(bytes);
         }
     }
-}
\ No newline at end of file
+}
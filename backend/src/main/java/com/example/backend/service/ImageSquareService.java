@@ -4,11 +4,16 @@ import java.io.IOException;
 
 import org.springframework.stereotype.Service;
 
+import com.example.backend.service.core.PixelBuffer;
 import com.example.backend.service.util.ImageUtil;
  
 @Service
 public class ImageSquareService {
  
+    public boolean isSquare(PixelBuffer image) {
+        return image.width() == image.height();
+    }
+
     public boolean isSquare(byte[] bytes) throws IOException {
         BufferedImage image = ImageUtil.decode(bytes);
         if (image == null) {
@@ -0,0 +1,33 @@
+package com.example.backend.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// One /composite-layers layer as sent by the client, plus the keys resolved for it
+class LayerData {
+    String type, color, gradientStart, gradientEnd, filterType;
+    CharSequence imageData; // base64 data URL, usually a view into the request JSON
+    String imageRef;        // name of a multipart part holding the image bytes instead
+    boolean visible = true;
+    float opacity = 1.0f;
+    int gradientAngle = 90;
+    Map<String, String> params = new HashMap<>();
+
+    String imageHash; // content hash of the image, set for visible image layers
+    String imageKey;  // layer cache key (hash + canvas size)
+
+    boolean isImage() {
+        return "image".equals(type) && (imageData != null || imageRef != null);
+    }
+
+    // Everything that affects the pixels; image data is represented by its hash
+    String signature() {
+        return String.join("|", type, Float.toString(opacity), color, gradientStart, gradientEnd,
+                Integer.toString(gradientAngle), filterType, new TreeMap<>(params).toString(), imageHash);
+    }
+
+    int getIntParam(String k, int d) {
+        try { return Integer.parseInt(params.get(k)); } catch(Exception e) { return d; }
+    }
+}
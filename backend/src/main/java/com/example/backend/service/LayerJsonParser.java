@@ -0,0 +1,226 @@
+package com.example.backend.service;
+
+import com.example.backend.service.util.TextSlice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass parser for the /composite-layers "layers" JSON (an array of layer objects,
+ * or one bare object). A cursor walks the text once; string values without escapes come
+ * back as {@link TextSlice} views, so megabyte-sized imageData is never copied here.
+ * Unknown keys are skipped, and malformed input throws IllegalArgumentException.
+ */
+final class LayerJsonParser {
+
+    private final String src;
+    private int pos;
+    // Next backslash at or after pos; found lazily so the escape check stays one pass overall
+    private int nextEscape = -1;
+
+    private LayerJsonParser(String src) {
+        this.src = src;
+    }
+
+    static List<LayerData> parse(String json) {
+        LayerJsonParser p = new LayerJsonParser(json);
+        List<LayerData> layers = p.layers();
+        p.skipWs();
+        if (p.pos != json.length()) throw p.error("Unexpected trailing content");
+        return layers;
+    }
+
+    private List<LayerData> layers() {
+        List<LayerData> list = new ArrayList<>();
+        skipWs();
+        if (peek() == '{') {
+            list.add(layer());
+            return list;
+        }
+        expect('[');
+        skipWs();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        do {
+            skipWs();
+            list.add(layer());
+            skipWs();
+        } while (consume(','));
+        expect(']');
+        return list;
+    }
+
+    private LayerData layer() {
+        LayerData l = new LayerData();
+        expect('{');
+        skipWs();
+        if (consume('}')) return l;
+        do {
+            skipWs();
+            String key = string().toString();
+            skipWs();
+            expect(':');
+            skipWs();
+            switch (key) {
+                case "type":          l.type = text(); break;
+                case "visible":       l.visible = Boolean.parseBoolean(text()); break;
+                case "opacity":       l.opacity = number(); break;
+                case "color":         l.color = text(); break;
+                case "gradientStart": l.gradientStart = text(); break;
+                case "gradientEnd":   l.gradientEnd = text(); break;
+                case "gradientAngle": l.gradientAngle = (int) number(); break;
+                case "imageData":     l.imageData = value(); break;
+                case "imageRef":      l.imageRef = text(); break;
+                case "filterType":    l.filterType = text(); break;
+                case "params":        params(l); break;
+                default:              value(); break;
+            }
+            skipWs();
+        } while (consume(','));
+        expect('}');
+        return l;
+    }
+
+    // Flat object of scalars; nested values are kept as their raw JSON text
+    private void params(LayerData l) {
+        if (peek() != '{') {
+            value();
+            return;
+        }
+        pos++;
+        skipWs();
+        if (consume('}')) return;
+        do {
+            skipWs();
+            String key = string().toString();
+            skipWs();
+            expect(':');
+            skipWs();
+            l.params.put(key, text());
+            skipWs();
+        } while (consume(','));
+        expect('}');
+    }
+
+    private String text() {
+        CharSequence v = value();
+        return (v == null) ? null : v.toString();
+    }
+
+    // Numbers may also arrive quoted, as the old parser accepted
+    private float number() {
+        String v = text();
+        try {
+            return Float.parseFloat(v);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw error("Expected a number but got " + v);
+        }
+    }
+
+    // String contents, a scalar's text, or a nested value's raw text; null for JSON null
+    private CharSequence value() {
+        char c = peek();
+        if (c == '"') return string();
+        int start = pos;
+        if (c == '{' || c == '[') {
+            skipNested();
+            return new TextSlice(src, start, pos);
+        }
+        while (pos < src.length() && ",}] \t\r\n".indexOf(src.charAt(pos)) < 0) pos++;
+        if (pos == start) throw error("Expected a value");
+        return (pos - start == 4 && src.startsWith("null", start)) ? null : new TextSlice(src, start, pos);
+    }
+
+    private CharSequence string() {
+        expect('"');
+        int start = pos;
+        int end = src.indexOf('"', pos);
+        if (end < 0) throw error("Unterminated string");
+        if (nextEscape < pos) {
+            nextEscape = src.indexOf('\\', pos);
+            if (nextEscape < 0) nextEscape = src.length();
+        }
+        if (nextEscape > end) {
+            pos = end + 1;
+            return new TextSlice(src, start, end);
+        }
+        return escapedString(start);
+    }
+
+    // Slow path, only for strings that actually contain escapes
+    private String escapedString(int start) {
+        StringBuilder sb = new StringBuilder();
+        pos = start;
+        while (true) {
+            if (pos >= src.length()) throw error("Unterminated string");
+            char c = src.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= src.length()) throw error("Unterminated string");
+            char e = src.charAt(pos++);
+            switch (e) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > src.length()) throw error("Bad unicode escape");
+                    try {
+                        sb.append((char) Integer.parseInt(src, pos, pos + 4, 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(e); break; // \" \\ \/
+            }
+        }
+    }
+
+    // Skips a balanced object or array, stepping over strings so their brackets don't count
+    private void skipNested() {
+        int depth = 0;
+        do {
+            if (pos >= src.length()) throw error("Unterminated object or array");
+            char c = src.charAt(pos);
+            if (c == '"') {
+                string();
+                continue;
+            }
+            if (c == '{' || c == '[') depth++;
+            else if (c == '}' || c == ']') depth--;
+            pos++;
+        } while (depth > 0);
+    }
+
+    private void skipWs() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        if (pos >= src.length()) throw error("Unexpected end of input");
+        return src.charAt(pos);
+    }
+
+    private boolean consume(char c) {
+        if (pos < src.length() && src.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) throw error("Expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Malformed layers JSON at offset " + pos + ": " + message);
+    }
+}
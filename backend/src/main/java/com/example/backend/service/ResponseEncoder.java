@@ -0,0 +1,133 @@
+package com.example.backend.service;
+
+import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.models.ResponseOptions;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.util.ImageUtil;
+import com.example.backend.service.util.PngEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Chooses how a result raster is encoded. Requests may override the pixel.output.*
+ * defaults with format / compression / filter / quality parameters; the default is
+ * lossless PNG through ImageIO, exactly as before.
+ */
+@Component
+public class ResponseEncoder {
+
+    private final String format;
+    private final String compression;
+    private final String filter;
+    private final int quality;
+
+    public ResponseEncoder(
+            @Value("${pixel.output.format:png}") String format,
+            @Value("${pixel.output.png-compression:default}") String compression,
+            @Value("${pixel.output.png-filter:}") String filter,
+            @Value("${pixel.output.jpeg-quality:85}") int quality) {
+        this.format = format;
+        this.compression = compression;
+        this.filter = filter.isBlank() ? null : filter;
+        this.quality = quality;
+        parse(this.format, this.compression, this.filter, this.quality); // fail fast on bad config
+    }
+
+    // Effective encoding for a request; its toString() is stable and safe to use in cache keys
+    public Encoding resolve(ResponseOptions options) {
+        return parse(
+            options.getFormat() != null ? options.getFormat() : format,
+            options.getCompression() != null ? options.getCompression() : compression,
+            options.getFilter() != null ? options.getFilter() : filter,
+            options.getQuality() != null ? options.getQuality() : quality);
+    }
+
+    public ImageMatrixResponse toResponse(PixelBuffer buf, Encoding encoding) throws IOException {
+        ImageMatrixResponse res = new ImageMatrixResponse(
+            encode(buf, encoding),
+            LinearMatrixUtil.toLinear(buf),
+            buf.width(),
+            buf.height()
+        );
+        res.format = encoding.format;
+        return res;
+    }
+
+    public byte[] encode(PixelBuffer buf, Encoding encoding) throws IOException {
+        if ("jpeg".equals(encoding.format)) {
+            return ImageUtil.encodeJpeg(buf, encoding.quality / 100f);
+        }
+        if (encoding.level < 0 && encoding.filter == null) {
+            return ImageUtil.encode(buf.image());
+        }
+        int level = (encoding.level < 0) ? 6 : encoding.level;
+        PngEncoder.Filter filter = (encoding.filter == null) ? PngEncoder.Filter.ADAPTIVE : encoding.filter;
+        return PngEncoder.encode(buf, level, filter);
+    }
+
+    private static Encoding parse(String format, String compression, String filter, int quality) {
+        String f = format.toLowerCase(Locale.ROOT);
+        if ("jpg".equals(f)) f = "jpeg";
+        if ("jpeg".equals(f)) {
+            if (quality < 1 || quality > 100) throw badRequest("JPEG quality must be between 1 and 100.");
+            return new Encoding(f, -1, null, quality);
+        }
+        if (!"png".equals(f)) throw badRequest("Unsupported format: " + format);
+
+        // An explicit level or filter selects the direct PNG writer; neither keeps ImageIO
+        return new Encoding(f, parseLevel(compression), filter == null ? null : parseFilter(filter), quality);
+    }
+
+    private static int parseLevel(String s) {
+        switch (s.toLowerCase(Locale.ROOT)) {
+            case "default": return -1;
+            case "none":    return 0;
+            case "fast":    return 1;
+            case "best":    return 9;
+        }
+        try {
+            int level = Integer.parseInt(s);
+            if (level >= 0 && level <= 9) return level;
+        } catch (NumberFormatException ignored) {}
+        throw badRequest("PNG compression must be 0-9, none, fast, best or default.");
+    }
+
+    private static PngEncoder.Filter parseFilter(String s) {
+        try {
+            return PngEncoder.Filter.valueOf(s.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw badRequest("Unknown PNG filter: " + s);
+        }
+    }
+
+    private static ResponseStatusException badRequest(String msg) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+    }
+
+    public static final class Encoding {
+        final String format;
+        final int level;                // -1 = ImageIO default
+        final PngEncoder.Filter filter; // null = ImageIO default
+        final int quality;
+
+        Encoding(String format, int level, PngEncoder.Filter filter, int quality) {
+            this.format = format;
+            this.level = level;
+            this.filter = filter;
+            this.quality = quality;
+        }
+
+        @Override
+        public String toString() {
+            if ("jpeg".equals(format)) return "jpeg:" + quality;
+            if (level < 0 && filter == null) return "png";
+            return "png:" + level + ":" + (filter == null ? "adaptive" : filter.name().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -1,4 +1,6 @@
 package com.example.backend.service;
+
+import com.example.backend.models.MatrixWindowResponse;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -7,15 +9,31 @@ public class SubMatrixService {
     // Extract submatrix from a pixel matrix (1D array)
     public int[] extractSubMatrix(int[] pixels, int width, int height, int x, int y, int w, int h) {
         int[] result = new int[w * h];
- 
+        copySubMatrix(pixels, width, x, y, w, h, result);
+        return result;
+    }
+
+    // Same, into dest (row stride w); one bulk copy per row
+    public void copySubMatrix(int[] pixels, int width, int x, int y, int w, int h, int[] dest) {
         for (int row = 0; row < h; row++) {
-            for (int col = 0; col < w; col++) {
-                int srcIndex = (y + row) * width + (x + col);
-                int destIndex = row * w + col;
-                result[destIndex] = pixels[srcIndex];
-            }
+            System.arraycopy(pixels, (y + row) * width + x, dest, row * w, w);
         }
-        return result;
+    }
+
+    // (2 * radius + 1)^2 window centred on (cx, cy), clipped to the image bounds; the centre must be inside
+    public MatrixWindowResponse window(int[] pixels, int width, int height, int cx, int cy, int radius) {
+        if (cx < 0 || cy < 0 || cx >= width || cy >= height || radius < 0) {
+            throw new IllegalArgumentException("Window centre is outside the image or the radius is negative.");
+        }
+        int x0 = Math.max(0, cx - radius);
+        int y0 = Math.max(0, cy - radius);
+        int x1 = Math.min(width, cx + radius + 1);
+        int y1 = Math.min(height, cy + radius + 1);
+        int w = x1 - x0;
+        int h = y1 - y0;
+
+        int[] values = extractSubMatrix(pixels, width, height, x0, y0, w, h);
+        return new MatrixWindowResponse(x0, y0, w, h, values, width, height);
     }
 }
  
\ No newline at end of file
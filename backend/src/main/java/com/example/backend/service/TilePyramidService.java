@@ -0,0 +1,141 @@
+package com.example.backend.service;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.models.TilePyramidInfo;
+import com.example.backend.service.cache.LruCache;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelOperator;
+import com.example.backend.service.core.TileScheduler;
+import com.example.backend.service.util.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * Multi-resolution tiles for uploaded images. Level 0 is the decoded original; level n is
+ * built on first use by 2x2 area-averaging level n - 1, down to the level that fits in a
+ * single tile. Downsampled levels and encoded PNG tiles share one byte-budgeted LRU.
+ *
+ * Keys start with the handle, which is the SHA-256 of the image content, so a new image
+ * version is a new handle and can never be served stale tiles; old versions age out.
+ */
+@Service
+public class TilePyramidService {
+
+    private final ImageHandleService handles;
+    private final TileScheduler scheduler;
+    private final int tileSize;
+    private final LruCache<String, Object> cache;
+
+    public TilePyramidService(
+            ImageHandleService handles,
+            TileScheduler scheduler,
+            @Value("${pixel.pyramid.tile-size:256}") int tileSize,
+            @Value("${pixel.pyramid.max-bytes:268435456}") long maxBytes) {
+        // levels() halves the image until it fits in one tile, which never happens for a size <= 0
+        if (tileSize <= 0) throw new IllegalArgumentException("pixel.pyramid.tile-size must be positive.");
+        this.handles = handles;
+        this.scheduler = scheduler;
+        this.tileSize = tileSize;
+        this.cache = new LruCache<>(maxBytes, 0, TilePyramidService::weigh);
+    }
+
+    public TilePyramidInfo info(String handle) throws IOException {
+        PixelBuffer base = handles.resolve(null, handle);
+        return new TilePyramidInfo(handle, base.width(), base.height(), tileSize, levels(base.width(), base.height()));
+    }
+
+    // PNG bytes of tile (x, y) at the given level; edge tiles are cropped to the image
+    public byte[] tile(String handle, int level, int x, int y) throws IOException {
+        String key = handle + "/" + level + "/" + x + "/" + y;
+        byte[] png = (byte[]) cache.get(key);
+        if (png != null) return png;
+
+        PixelBuffer img = level(handle, level);
+        int x0 = x * tileSize, y0 = y * tileSize;
+        if (x < 0 || y < 0 || x0 >= img.width() || y0 >= img.height()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such tile.");
+        }
+        int w = Math.min(tileSize, img.width() - x0), h = Math.min(tileSize, img.height() - y0);
+
+        PixelBuffer tile = PixelBuffer.create(w, h);
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(img.data(), (y0 + row) * img.width() + x0, tile.data(), row * w, w);
+        }
+        png = ImageUtil.encode(tile.image());
+        cache.put(key, png);
+        return png;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private PixelBuffer level(String handle, int level) throws IOException {
+        PixelBuffer base = handles.resolve(null, handle);
+        if (level < 0 || level >= levels(base.width(), base.height())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such level.");
+        }
+        if (level == 0) return base;
+
+        String key = handle + "/" + level;
+        PixelBuffer img = (PixelBuffer) cache.get(key);
+        if (img == null) {
+            img = downsample(level(handle, level - 1));
+            cache.put(key, img);
+        }
+        return img;
+    }
+
+    // Levels needed until the whole image fits in one tile
+    private int levels(int w, int h) {
+        int levels = 1;
+        while (w > tileSize || h > tileSize) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            levels++;
+        }
+        return levels;
+    }
+
+    // Half size in each direction; every output pixel averages the (up to) 2x2 pixels it covers
+    private PixelBuffer downsample(PixelBuffer src) {
+        int sw = src.width(), sh = src.height();
+        int dw = (sw + 1) / 2, dh = (sh + 1) / 2;
+        int[] in = src.data();
+
+        return scheduler.run(PixelOperator.gather((s, d, y0, y1) -> {
+            int[] out = d.data();
+            for (int y = y0; y < y1; y++) {
+                int r0 = 2 * y * sw;
+                int r1 = (2 * y + 1 < sh) ? r0 + sw : r0;
+                int rows = (r1 != r0) ? 2 : 1;
+                for (int x = 0; x < dw; x++) {
+                    int c0 = 2 * x;
+                    int c1 = (c0 + 1 < sw) ? c0 + 1 : c0;
+                    int n = rows * ((c1 != c0) ? 2 : 1);
+                    int p00 = in[r0 + c0], p01 = in[r0 + c1], p10 = in[r1 + c0], p11 = in[r1 + c1];
+
+                    int argb = 0;
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        int sum = ((p00 >>> shift) & 0xFF);
+                        if (c1 != c0) sum += (p01 >>> shift) & 0xFF;
+                        if (rows == 2) {
+                            sum += (p10 >>> shift) & 0xFF;
+                            if (c1 != c0) sum += (p11 >>> shift) & 0xFF;
+                        }
+                        argb |= ((sum + n / 2) / n) << shift;
+                    }
+                    out[y * dw + x] = argb;
+                }
+            }
+        }), src, PixelBuffer.create(dw, dh));
+    }
+
+    private static long weigh(Object v) {
+        return (v instanceof byte[]) ? ((byte[]) v).length : 4L * ((PixelBuffer) v).data().length;
+    }
+}
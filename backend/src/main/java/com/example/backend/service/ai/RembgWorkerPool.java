@@ -0,0 +1,375 @@
+package com.example.backend.service.ai;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of long-lived rembg worker processes. Each worker loads the model once and then
+ * serves images as length-prefixed PNG frames over stdin/stdout (see rembg_worker.py).
+ * Crashed or timed-out workers are killed and replaced; idle workers are pinged on a
+ * fixed interval. At most {@code workers + queue} requests are admitted at a time.
+ *
+ * pixel.rembg.command overrides the worker command line (e.g. a stub for tests); words
+ * are split on whitespace, and "double" or 'single' quotes keep paths with spaces together.
+ * When blank, the bundled script is run with the first Python found on the PATH.
+ *
+ * Availability is probed by starting the first worker in the background when the pool is
+ * created; until it reports ready, {@link #isAvailable()} answers "not yet" instead of
+ * waiting. Only a definite failure (no interpreter, or a command that cannot be run) is
+ * final; a worker that dies or times out while loading is retried after the health interval.
+ *
+ * Kill timers, health checks and worker starts each have their own threads, so a worker
+ * that hangs during a ping or a model load can always be killed, and a slow start never
+ * delays a health check (or the other way round).
+ */
+@Component
+public class RembgWorkerPool implements DisposableBean {
+
+    private static final byte[] PING = new byte[0];
+
+    private final String configuredCommand;
+    private final int size;
+    private final long timeoutMillis;
+    private final long startupTimeoutMillis;
+    private final long probeRetryMillis;
+    private final Semaphore admission;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> all = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger live = new AtomicInteger();
+    // Kill timers only; nothing that can block may run here
+    private final ScheduledExecutorService watchdog;
+    // Health checks, which block on a worker until its kill timer fires
+    private final ScheduledExecutorService health;
+    // Availability probe and worker (re)starts, each blocking until the model is loaded
+    private final ExecutorService starter;
+
+    private volatile List<String> command;
+    // null until a probe has succeeded or failed for good
+    private volatile Boolean available;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile long nextProbe;
+    private volatile boolean closed;
+
+    public RembgWorkerPool(
+            @Value("${pixel.rembg.command:}") String command,
+            @Value("${pixel.rembg.workers:2}") int workers,
+            @Value("${pixel.rembg.queue:8}") int queue,
+            @Value("${pixel.rembg.timeout:60s}") Duration timeout,
+            @Value("${pixel.rembg.startup-timeout:120s}") Duration startupTimeout,
+            @Value("${pixel.rembg.health-interval:30s}") Duration healthInterval) {
+        this.configuredCommand = command.trim();
+        this.size = Math.max(1, workers);
+        this.timeoutMillis = timeout.toMillis();
+        this.startupTimeoutMillis = startupTimeout.toMillis();
+        this.probeRetryMillis = healthInterval.toMillis();
+        this.admission = new Semaphore(size + Math.max(0, queue));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("rembg-watchdog"));
+        this.health = Executors.newSingleThreadScheduledExecutor(daemon("rembg-health"));
+        // Starts are bounded by the pool size through `live`
+        this.starter = Executors.newCachedThreadPool(daemon("rembg-starter"));
+        if (!healthInterval.isZero()) {
+            long ms = healthInterval.toMillis();
+            health.scheduleWithFixedDelay(this::healthCheck, ms, ms, TimeUnit.MILLISECONDS);
+        }
+        probeInBackground();
+    }
+
+    // Never blocks: false while the probe is still loading the first worker
+    public boolean isAvailable() {
+        Boolean a = available;
+        if (a == null) probeInBackground();
+        return Boolean.TRUE.equals(a);
+    }
+
+    // PNG in, PNG out; throws if the pool is unavailable, saturated, or the worker fails
+    public byte[] process(byte[] png) throws Exception {
+        if (!isAvailable()) throw new IllegalStateException("rembg is not available.");
+        if (png.length == 0) throw new IllegalArgumentException("Empty image.");
+        if (!admission.tryAcquire()) throw new RejectedExecutionException("Background removal queue is full.");
+        try {
+            Worker w = borrow();
+            try {
+                return w.exchange(png, timeoutMillis);
+            } finally {
+                release(w);
+            }
+        } finally {
+            admission.release();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        health.shutdownNow();
+        starter.shutdownNow();
+        watchdog.shutdownNow();
+        for (Worker w : all) w.kill();
+    }
+
+    // --- POOL MANAGEMENT ---
+
+    // Starts the probe unless one is running, it already has an answer, or the last one failed too recently
+    private void probeInBackground() {
+        if (closed || System.currentTimeMillis() < nextProbe || !probing.compareAndSet(false, true)) return;
+        try {
+            starter.execute(this::probe);
+        } catch (RejectedExecutionException e) {
+            probing.set(false);
+        }
+    }
+
+    private void probe() {
+        try {
+            Process process;
+            try {
+                command = resolveCommand();
+                process = launch();
+            } catch (Exception e) {
+                // No interpreter, or the command cannot be run at all: retrying will not help
+                available = false;
+                return;
+            }
+            live.incrementAndGet();
+            try {
+                idle.offer(awaitReady(process));
+                available = true;
+            } catch (IOException e) {
+                // Died or timed out while loading its model; may work next time
+                live.decrementAndGet();
+                nextProbe = System.currentTimeMillis() + probeRetryMillis;
+            }
+        } finally {
+            probing.set(false);
+        }
+    }
+
+    private Worker borrow() throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            Worker w = idle.poll();
+            if (w != null) {
+                if (w.isAlive()) return w;
+                retire(w);
+                continue;
+            }
+            // Grow up to the pool size in the background: a model load can outlast this
+            // request, which only waits until its own deadline for whichever worker is free first
+            if (live.get() < size) starter.execute(this::replenish);
+
+            long wait = deadline - System.currentTimeMillis();
+            w = (wait > 0) ? idle.poll(wait, TimeUnit.MILLISECONDS) : null;
+            if (w == null) throw new TimeoutException("No rembg worker became free in time.");
+            if (w.isAlive()) return w;
+            retire(w);
+        }
+    }
+
+    private void release(Worker w) {
+        if (w.broken || !w.isAlive() || closed) {
+            retire(w);
+            // Restart in the background so the next request doesn't pay for the model load
+            if (!closed) starter.execute(this::replenish);
+        } else {
+            idle.offer(w);
+        }
+    }
+
+    private void retire(Worker w) {
+        w.kill();
+        all.remove(w);
+        live.decrementAndGet();
+    }
+
+    private void replenish() {
+        if (closed) return;
+        if (live.incrementAndGet() > size) {
+            live.decrementAndGet();
+            return;
+        }
+        try {
+            idle.offer(awaitReady(launch()));
+        } catch (IOException e) {
+            // Next borrow() will try again
+            live.decrementAndGet();
+        }
+    }
+
+    // Pings every worker that is idle right now; unresponsive ones are replaced
+    private void healthCheck() {
+        for (int n = idle.size(); n > 0; n--) {
+            Worker w = idle.poll();
+            if (w == null) return;
+            try {
+                w.exchange(PING, Math.min(timeoutMillis, 5000));
+            } catch (IOException ignored) {
+                // exchange() marked it broken
+            }
+            release(w);
+        }
+    }
+
+    private Process launch() throws IOException {
+        return new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    // Caller has already counted the worker in `live` and rolls the count back if this throws
+    private Worker awaitReady(Process process) throws IOException {
+        Worker w = new Worker(process);
+        all.add(w);
+        try {
+            // The worker sends an empty frame once its model is loaded
+            w.awaitFrame(startupTimeoutMillis);
+            w.broken = false;
+            return w;
+        } catch (IOException e) {
+            all.remove(w);
+            w.kill();
+            throw e;
+        }
+    }
+
+    private List<String> resolveCommand() throws IOException {
+        if (!configuredCommand.isEmpty()) return splitCommand(configuredCommand);
+
+        String python = null;
+        for (String cmd : new String[]{"python3", "python", "py"}) {
+            try {
+                Process p = new ProcessBuilder(cmd, "--version").start();
+                if (p.waitFor() == 0) {
+                    python = cmd;
+                    break;
+                }
+            } catch (Exception ignored) {}
+        }
+        if (python == null) throw new IOException("No Python interpreter found.");
+
+        Path dir = Files.createDirectories(Paths.get(System.getProperty("java.io.tmpdir"), "pixellab_ai"));
+        Path script = dir.resolve("rembg_worker.py");
+        try (InputStream in = RembgWorkerPool.class.getResourceAsStream("/rembg_worker.py")) {
+            if (in == null) throw new IOException("rembg_worker.py is missing from the classpath.");
+            Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return List.of(python, "-u", script.toString());
+    }
+
+    // Whitespace-separated words; quotes group words and are dropped, backslashes are kept as-is
+    static List<String> splitCommand(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+                else word.append(c);
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inWord = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) words.add(word.toString());
+                word.setLength(0);
+                inWord = false;
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quote != 0) throw new IllegalArgumentException("Unterminated quote in pixel.rembg.command.");
+        if (inWord) words.add(word.toString());
+        return words;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private final class Worker {
+        final Process process;
+        final DataInputStream in;
+        final DataOutputStream out;
+        // Set while a frame is in flight; a worker left broken is never reused
+        volatile boolean broken = true;
+
+        Worker(Process process) {
+            this.process = process;
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+
+        byte[] exchange(byte[] payload, long timeout) throws IOException {
+            broken = true;
+            ScheduledFuture<?> kill = watchdog.schedule(this::kill, timeout, TimeUnit.MILLISECONDS);
+            try {
+                out.writeInt(payload.length);
+                out.write(payload);
+                out.flush();
+                byte[] result = readFrame();
+                broken = false;
+                return result;
+            } catch (WorkerError e) {
+                // The worker rejected this image but is still in sync
+                broken = false;
+                throw e;
+            } catch (IOException e) {
+                throw kill.isDone() ? new IOException("rembg worker timed out.", e) : e;
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        void awaitFrame(long timeout) throws IOException {
+            ScheduledFuture<?> kill = watchdog.schedule(this::kill, timeout, TimeUnit.MILLISECONDS);
+            try {
+                readFrame();
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        private byte[] readFrame() throws IOException {
+            int n = in.readInt();
+            if (n < 0) throw new WorkerError();
+            byte[] data = new byte[n];
+            in.readFully(data);
+            return data;
+        }
+    }
+
+    private static final class WorkerError extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        WorkerError() {
+            super("rembg worker could not process the image.");
+        }
+    }
+}
@@ -1,50 +1,37 @@
 package com.example.backend.service.basic;
 
 import com.example.backend.models.ImageMatrixResponse;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelKernelProvider;
+import com.example.backend.service.core.PointLut;
+import com.example.backend.service.core.TileScheduler;
 import com.example.backend.service.util.ImageUtil;
 import org.springframework.stereotype.Service;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 @Service
 public class ContrastService {
 
-    private final GrayscaleService grayscaleService;
+    private final TileScheduler scheduler;
+    private final PixelKernelProvider kernels;
 
-    // Inject GrayscaleService to reuse its processing logic
-    public ContrastService(GrayscaleService grayscaleService) {
-        this.grayscaleService = grayscaleService;
+    public ContrastService(TileScheduler scheduler, PixelKernelProvider kernels) {
+        this.scheduler = scheduler;
+        this.kernels = kernels;
     }
 
     public ImageMatrixResponse apply(byte[] bytes, int level, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
-
-        // If the toggle is active, convert the image to grayscale first
-        if (grayscale) {
-            img = grayscaleService.process(img);
-        }
+        return ImageUtil.toResponse(process(ImageUtil.decodeBuffer(bytes), level, grayscale));
+    }
 
-        double factor = (259.0 * (level + 255)) / (255.0 * (259 - level));
+    // Raster-level entry point: returns a new buffer, src is left untouched
+    public PixelBuffer process(PixelBuffer src, int level) {
+        return process(src, level, false);
+    }
 
-        for (int y = 0; y < img.getHeight(); y++) {
-            for (int x = 0; x < img.getWidth(); x++) {
-                int rgb = img.getRGB(x, y);
-                
-                // Extract channels and apply contrast factor
-                int r = ImageUtil.clamp((int)(factor * (((rgb >> 16) & 255) - 128) + 128));
-                int g = ImageUtil.clamp((int)(factor * (((rgb >> 8) & 255) - 128) + 128));
-                int b = ImageUtil.clamp((int)(factor * ((rgb & 255) - 128) + 128));
-                
-                img.setRGB(x, y, (0xff << 24) | (r << 16) | (g << 8) | b);
-            }
-        }
-        
-        return new ImageMatrixResponse(
-            ImageUtil.encode(img),
-            LinearMatrixUtil.toLinear(img),
-            img.getWidth(),
-            img.getHeight()
-        );
+    public PixelBuffer process(PixelBuffer src, int level, boolean grayscale) {
+        // Toggle: grayscale is fused into the same lookup table, so this is still one pass
+        PointLut lut = grayscale ? PointLut.grayscale().then(PointLut.contrast(level)) : PointLut.contrast(level);
+        return scheduler.run(kernels.point(lut), src, PixelBuffer.create(src.width(), src.height()));
     }
-}
\ No newline at end of file
+}
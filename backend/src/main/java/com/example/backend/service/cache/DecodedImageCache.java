@@ -0,0 +1,36 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.service.core.PixelBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Decoded originals keyed by image handle (content hash), so operation endpoints
+ * can skip both the upload and the PNG/JPEG decode.
+ */
+@Component
+public class DecodedImageCache {
+
+    private final LruCache<String, PixelBuffer> cache;
+
+    public DecodedImageCache(
+            @Value("${pixel.cache.decoded.max-bytes:536870912}") long maxBytes,
+            @Value("${pixel.cache.decoded.max-idle:30m}") Duration maxIdle) {
+        this.cache = new LruCache<>(maxBytes, maxIdle.toMillis(), img -> 4L * img.width() * img.height());
+    }
+
+    public PixelBuffer get(String handle) {
+        return cache.get(handle);
+    }
+
+    public boolean put(String handle, PixelBuffer img) {
+        return cache.put(handle, img);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
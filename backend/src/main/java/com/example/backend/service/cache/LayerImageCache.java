@@ -0,0 +1,41 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.service.core.PixelBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * /composite-layers image layers, already decoded and resized to the canvas. Keyed by
+ * the hash of the layer's encoded data plus the target size, so re-compositing an
+ * unchanged stack (e.g. after an opacity change) skips base64, ImageIO and the rescale.
+ */
+@Component
+public class LayerImageCache {
+
+    private final LruCache<String, PixelBuffer> cache;
+
+    public LayerImageCache(
+            @Value("${pixel.cache.layers.max-bytes:134217728}") long maxBytes,
+            @Value("${pixel.cache.layers.max-idle:30m}") Duration maxIdle) {
+        this.cache = new LruCache<>(maxBytes, maxIdle.toMillis(), img -> 4L * img.width() * img.height());
+    }
+
+    public static String key(String contentHash, int width, int height) {
+        return contentHash + ":" + width + "x" + height;
+    }
+
+    public PixelBuffer get(String key) {
+        return cache.get(key);
+    }
+
+    public boolean put(String key, PixelBuffer img) {
+        return cache.put(key, img);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
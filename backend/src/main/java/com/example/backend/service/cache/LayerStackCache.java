@@ -0,0 +1,62 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.service.core.PixelBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Intermediate /composite-layers canvases, keyed by a hash chained over the base image
+ * and every visible layer definition up to that point. A request that changes layer k
+ * resumes from the canvas left after layer k-1 instead of re-running the stack.
+ *
+ * Every checkpoint is a full canvas copy, so a request keeps at most twice
+ * {@code checkpoints} of them: after each of the topmost {@code checkpoints} visible layers
+ * (edits usually land there), and after every ceil(visible / checkpoints)-th visible layer
+ * below, so an edit further down still resumes within that many layers. Canvases larger
+ * than the whole budget are never copied at all.
+ */
+@Component
+public class LayerStackCache {
+
+    private final LruCache<String, PixelBuffer> cache;
+    private final long maxBytes;
+    private final int checkpoints;
+
+    public LayerStackCache(
+            @Value("${pixel.cache.stack.max-bytes:268435456}") long maxBytes,
+            @Value("${pixel.cache.stack.max-idle:10m}") Duration maxIdle,
+            @Value("${pixel.cache.stack.checkpoints:3}") int checkpoints) {
+        this.cache = new LruCache<>(maxBytes, maxIdle.toMillis(), LayerStackCache::weigh);
+        this.maxBytes = maxBytes;
+        this.checkpoints = Math.max(0, checkpoints);
+    }
+
+    // How many of the topmost visible layers keep their canvas, and how many spaced ones below
+    public int checkpoints() {
+        return checkpoints;
+    }
+
+    // False when a canvas this size could never be stored, so callers can skip the copy
+    public boolean accepts(PixelBuffer canvas) {
+        return checkpoints > 0 && weigh(canvas) <= maxBytes;
+    }
+
+    public PixelBuffer get(String key) {
+        return cache.get(key);
+    }
+
+    public boolean put(String key, PixelBuffer canvas) {
+        return cache.put(key, canvas);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static long weigh(PixelBuffer img) {
+        return 4L * img.width() * img.height();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Access-ordered LRU bounded by an approximate byte budget rather than an entry count.
+ * Entries idle for longer than maxIdleMillis are dropped on the next access.
+ * All operations are synchronized; values must be treated as immutable by callers.
+ */
+public class LruCache<K, V> {
+
+    private final long maxBytes;
+    private final long maxIdleMillis;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        long lastAccess;
+
+        Entry(V value, long weight, long lastAccess) {
+            this.value = value;
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    // maxIdleMillis <= 0 disables idle expiry
+    public LruCache(long maxBytes, long maxIdleMillis, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.maxIdleMillis = maxIdleMillis;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        long now = System.currentTimeMillis();
+        expireIdle(now);
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        e.lastAccess = now;
+        return e.value;
+    }
+
+    // Values heavier than the whole budget are not cached; returns whether it was stored
+    public synchronized boolean put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) return false;
+
+        Entry<V> old = entries.put(key, new Entry<>(value, weight, System.currentTimeMillis()));
+        if (old != null) bytes -= old.weight;
+        bytes += weight;
+
+        evictToBudget();
+        return true;
+    }
+
+    public synchronized void remove(K key) {
+        Entry<V> old = entries.remove(key);
+        if (old != null) bytes -= old.weight;
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    private void evictToBudget() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().getValue().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    // Access order means the eldest entries are also the longest idle
+    private void expireIdle(long now) {
+        if (maxIdleMillis <= 0) return;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<V> e = it.next().getValue();
+            if (now - e.lastAccess <= maxIdleMillis) break;
+            bytes -= e.weight;
+            it.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.backend.service.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Canonical text form of an operation and its parameters, e.g.
+ * {@code brightness?grayscale=false&level=10}. Parameters are sorted by name so the
+ * same logical request always produces the same key.
+ */
+public final class OperationKey {
+
+    private final String operation;
+    private final Map<String, String> params = new TreeMap<>();
+
+    private OperationKey(String operation) {
+        this.operation = operation;
+    }
+
+    public static OperationKey of(String operation) {
+        return new OperationKey(operation);
+    }
+
+    public OperationKey param(String name, Object value) {
+        params.put(name, String.valueOf(value));
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(operation);
+        char sep = '?';
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            sb.append(sep).append(e.getKey()).append('=').append(e.getValue());
+            sep = '&';
+        }
+        return sb.toString();
+    }
+}
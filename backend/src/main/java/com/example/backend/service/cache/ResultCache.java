@@ -0,0 +1,126 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.util.HashUtil;
+import com.example.backend.service.util.ImageUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Two-tier cache of finished responses keyed by SHA-256(input image hash + canonical operation).
+ * Tier 1 is an in-heap LRU with a byte budget. Tier 2 (enabled by setting
+ * {@code pixel.cache.results.dir}) stores each response as a content-addressed file that
+ * survives restarts. A hit in either tier skips decode, processing and encode.
+ */
+@Component
+public class ResultCache {
+
+    private static final int FILE_MAGIC = 0x50584C52; // "PXLR"
+
+    private final LruCache<String, ImageMatrixResponse> heap;
+    private final Path dir;
+
+    public ResultCache(
+            @Value("${pixel.cache.results.max-bytes:268435456}") long maxBytes,
+            @Value("${pixel.cache.results.dir:}") String dir) throws IOException {
+        this.heap = new LruCache<>(maxBytes, 0, ResultCache::weigh);
+        this.dir = dir.isBlank() ? null : Files.createDirectories(Paths.get(dir));
+    }
+
+    public ImageMatrixResponse get(String imageKey, OperationKey op, Callable<ImageMatrixResponse> compute) throws Exception {
+        String key = HashUtil.sha256((imageKey + "\n" + op).getBytes(StandardCharsets.UTF_8));
+
+        ImageMatrixResponse res = lookup(key);
+        if (res == null) {
+            res = compute.call();
+            res.resultId = key;
+            writeDisk(key, res);
+            heap.put(key, res);
+        }
+        return res;
+    }
+
+    // Previously computed response by result id, or null if it has been evicted
+    public ImageMatrixResponse lookup(String resultId) {
+        ImageMatrixResponse res = heap.get(resultId);
+        if (res != null) return res;
+
+        res = readDisk(resultId);
+        if (res != null) {
+            res.resultId = resultId;
+            heap.put(resultId, res);
+        }
+        return res;
+    }
+
+    public CacheStats stats() {
+        return heap.stats();
+    }
+
+    private static long weigh(ImageMatrixResponse r) {
+        return r.image.length + 4L * (r.linear == null ? 0 : r.linear.length);
+    }
+
+    // --- DISK TIER: [magic, width, height, imageLen, image..., linearLen, linear...] ---
+
+    private Path file(String key) {
+        // Two-level fan-out keeps directories small
+        return dir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private ImageMatrixResponse readDisk(String key) {
+        // Ids can come from clients (/matrix/window); only our own hex digests map to files
+        if (dir == null || !key.matches("[0-9a-f]{64}")) return null;
+        Path f = file(key);
+        if (!Files.exists(f)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(f)))) {
+            if (in.readInt() != FILE_MAGIC) return null;
+            int width = in.readInt();
+            int height = in.readInt();
+            byte[] image = new byte[in.readInt()];
+            in.readFully(image);
+            int[] linear = new int[in.readInt()];
+            for (int i = 0; i < linear.length; i++) linear[i] = in.readInt();
+            ImageMatrixResponse res = new ImageMatrixResponse(image, linear, width, height);
+            res.format = ImageUtil.formatOf(image);
+            return res;
+        } catch (IOException e) {
+            // Corrupt or partial entry: treat as a miss and let it be rewritten
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, ImageMatrixResponse r) {
+        if (dir == null) return;
+        Path f = file(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(f.getParent());
+            tmp = Files.createTempFile(f.getParent(), key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(r.width);
+                out.writeInt(r.height);
+                out.writeInt(r.image.length);
+                out.write(r.image);
+                int[] linear = (r.linear == null) ? new int[0] : r.linear;
+                out.writeInt(linear.length);
+                for (int v : linear) out.writeInt(v);
+            }
+            // Atomic publish so concurrent readers never see a half-written file
+            Files.move(tmp, f, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The disk tier is best-effort; the computed response is still returned
+            try {
+                if (tmp != null) Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.backend.service.core;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Separable sliding-window blur. Each output pixel costs O(1) regardless of radius:
+ * per-column running sums are slid down the image one row at a time and a
+ * horizontal running sum is slid across those column sums.
+ *
+ * Edges are handled like the original neighbourhood loop: only in-bounds pixels are
+ * summed and the total is divided by the number of pixels actually covered, so
+ * {@link #box} is bit-identical to the old (2r+1)^2 convolution.
+ */
+@Component
+public class BlurEngine {
+
+    // Number of box passes used to approximate a Gaussian
+    private static final int GAUSSIAN_PASSES = 3;
+
+    private final TileScheduler scheduler;
+
+    public BlurEngine(TileScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void box(PixelBuffer src, PixelBuffer dst, int radius) {
+        int r = Math.max(1, radius);
+        scheduler.run(PixelOperator.neighbourhood(r,
+                (s, d, y0, y1) -> box(s.data(), d.data(), s.width(), s.height(), r, y0, y1)), src, dst);
+    }
+
+    /**
+     * Gaussian approximated by repeated box passes (central limit theorem).
+     * The radius is treated as ~2 sigma so the visual reach matches the box mode.
+     */
+    public void gaussian(PixelBuffer src, PixelBuffer dst, int radius) {
+        int[] radii = gaussianBoxRadii(Math.max(1, radius) / 2.0, GAUSSIAN_PASSES);
+
+        PixelBuffer tmp = PixelBuffer.create(src.width(), src.height());
+        PixelBuffer a = dst, b = tmp;
+        // Ping-pong so the last pass lands in dst
+        if (radii.length % 2 == 0) { a = tmp; b = dst; }
+
+        PixelBuffer in = src;
+        for (int i = 0; i < radii.length; i++) {
+            PixelBuffer out = (i % 2 == 0) ? a : b;
+            box(in, out, radii[i]);
+            in = out;
+        }
+    }
+
+    /**
+     * Box blur of rows [y0, y1) from src into dst. Rows outside the range are read
+     * (up to radius above and below) but never written, so disjoint row ranges can
+     * run concurrently against the same source.
+     */
+    public void box(int[] src, int[] dst, int w, int h, int radius, int y0, int y1) {
+        int r = Math.max(1, radius);
+        int[] colR = new int[w], colG = new int[w], colB = new int[w];
+
+        // Prime the column sums with the window for the first output row
+        int top = Math.max(0, y0 - r);
+        int bottom = Math.min(h - 1, y0 + r);
+        for (int y = top; y <= bottom; y++) {
+            addRow(src, y * w, w, colR, colG, colB, 1);
+        }
+
+        for (int y = y0; y < y1; y++) {
+            int rows = bottom - top + 1;
+            int out = y * w;
+
+            // Horizontal running sum over the column sums
+            int sr = 0, sg = 0, sb = 0;
+            int right = Math.min(w - 1, r);
+            for (int x = 0; x <= right; x++) {
+                sr += colR[x]; sg += colG[x]; sb += colB[x];
+            }
+            int left = 0;
+
+            for (int x = 0; x < w; x++) {
+                int count = (right - left + 1) * rows;
+                dst[out + x] = (0xff << 24) | ((sr / count) << 16) | ((sg / count) << 8) | (sb / count);
+
+                // Slide window: drop x - r, add x + r + 1
+                if (x - r >= 0) {
+                    sr -= colR[x - r]; sg -= colG[x - r]; sb -= colB[x - r];
+                    left = x - r + 1;
+                }
+                if (x + r + 1 < w) {
+                    sr += colR[x + r + 1]; sg += colG[x + r + 1]; sb += colB[x + r + 1];
+                    right = x + r + 1;
+                }
+            }
+
+            // Slide the vertical window down one row
+            if (y - r >= 0) {
+                addRow(src, (y - r) * w, w, colR, colG, colB, -1);
+                top = y - r + 1;
+            }
+            if (y + r + 1 < h) {
+                addRow(src, (y + r + 1) * w, w, colR, colG, colB, 1);
+                bottom = y + r + 1;
+            }
+        }
+    }
+
+    private static void addRow(int[] src, int off, int w, int[] colR, int[] colG, int[] colB, int sign) {
+        for (int x = 0; x < w; x++) {
+            int rgb = src[off + x];
+            colR[x] += sign * ((rgb >> 16) & 255);
+            colG[x] += sign * ((rgb >> 8) & 255);
+            colB[x] += sign * (rgb & 255);
+        }
+    }
+
+    // Box radii whose successive application approximates a Gaussian of the given sigma
+    static int[] gaussianBoxRadii(double sigma, int passes) {
+        double ideal = Math.sqrt(12 * sigma * sigma / passes + 1);
+        int wl = (int) Math.floor(ideal);
+        if (wl % 2 == 0) wl--;
+        int wu = wl + 2;
+
+        double mIdeal = (12 * sigma * sigma - passes * wl * wl - 4.0 * passes * wl - 3.0 * passes) / (-4.0 * wl - 4);
+        int m = (int) Math.round(mIdeal);
+
+        int[] radii = new int[passes];
+        for (int i = 0; i < passes; i++) {
+            radii[i] = Math.max(1, ((i < m) ? wl : wu) / 2);
+        }
+        return radii;
+    }
+}
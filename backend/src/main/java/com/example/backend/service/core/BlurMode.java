@@ -0,0 +1,17 @@
+package com.example.backend.service.core;
+
+import java.util.Locale;
+
+// Kernel shape for BlurEngine
+public enum BlurMode {
+    BOX, GAUSSIAN;
+
+    public static BlurMode parse(String name) {
+        if (name == null || name.isBlank()) return BOX;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown blur mode: " + name);
+        }
+    }
+}
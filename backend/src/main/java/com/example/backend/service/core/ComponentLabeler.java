@@ -0,0 +1,123 @@
+package com.example.backend.service.core;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 4-connected component labeling over flat bitset masks (bit {@code y * w + x}).
+ *
+ * The label plane is a single int[] that doubles as the union-find forest: a foreground
+ * pixel holds its parent's index + 1, a root holds -area, background holds 0. Horizontal
+ * strips are labeled in parallel and then stitched along their boundary rows, so the
+ * only allocations are the plane and the output bitset.
+ */
+@Component
+public class ComponentLabeler {
+
+    private static final int MIN_STRIP_ROWS = 64;
+
+    private final TileScheduler scheduler;
+
+    public ComponentLabeler(TileScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public static long[] newMask(int w, int h) {
+        return new long[(int) (((long) w * h + 63) >>> 6)];
+    }
+
+    public static boolean get(long[] mask, int i) {
+        return (mask[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public static void set(long[] mask, int i) {
+        mask[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Largest component of mask as a new bitset. Ties go to the component whose first
+     * pixel comes first in raster order; an empty mask gives an empty result.
+     */
+    public long[] largestComponent(long[] mask, int w, int h) {
+        int n = w * h;
+        int[] labels = new int[n];
+
+        // Pass 1: label strips independently, then merge across strip boundaries
+        int strips = Math.max(1, Math.min(scheduler.parallelism(), h / MIN_STRIP_ROWS));
+        int rows = (h + strips - 1) / strips;
+        scheduler.parallel(strips, s -> labelStrip(mask, labels, w, s * rows, Math.min(h, (s + 1) * rows)));
+        for (int y = rows; y < h; y += rows) {
+            int row = y * w;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                if (labels[i] != 0 && labels[i - w] != 0) union(labels, i, i - w);
+            }
+        }
+
+        // Pass 2: raster-order scan picks the winner and flattens every pixel onto its root
+        int best = -1, bestArea = 0;
+        for (int i = 0; i < n; i++) {
+            if (labels[i] == 0) continue;
+            int root = find(labels, i);
+            int area = -labels[root];
+            if (area > bestArea) {
+                bestArea = area;
+                best = root;
+            }
+            if (i != root) labels[i] = root + 1;
+        }
+
+        // Pass 3: emit the winner, one 64-pixel word per task step so writers never share a word
+        long[] out = newMask(w, h);
+        if (best < 0) return out;
+        int winner = best;
+        int words = out.length;
+        int chunks = Math.max(1, Math.min(scheduler.parallelism(), words / 1024));
+        int per = (words + chunks - 1) / chunks;
+        scheduler.parallel(chunks, c -> {
+            for (int word = c * per, end = Math.min(words, (c + 1) * per); word < end; word++) {
+                long bits = 0;
+                int base = word << 6;
+                for (int b = 0, lim = Math.min(64, n - base); b < lim; b++) {
+                    int i = base + b;
+                    if (i == winner || labels[i] == winner + 1) bits |= 1L << b;
+                }
+                out[word] = bits;
+            }
+        });
+        return out;
+    }
+
+    // Unions stay inside [y0, y1), so strips can run concurrently on the shared plane
+    private static void labelStrip(long[] mask, int[] labels, int w, int y0, int y1) {
+        for (int y = y0; y < y1; y++) {
+            int row = y * w;
+            for (int x = 0; x < w; x++) {
+                int i = row + x;
+                if (!get(mask, i)) continue;
+
+                labels[i] = -1; // new singleton root
+                if (x > 0 && labels[i - 1] != 0) union(labels, i, i - 1);
+                if (y > y0 && labels[i - w] != 0) union(labels, i, i - w);
+            }
+        }
+    }
+
+    private static int find(int[] labels, int i) {
+        while (labels[i] > 0) {
+            int parent = labels[i] - 1;
+            // Path halving: point at the grandparent when there is one
+            if (labels[parent] > 0) labels[i] = labels[parent];
+            i = parent;
+        }
+        return i;
+    }
+
+    // Union by size; the surviving root accumulates the area
+    private static void union(int[] labels, int a, int b) {
+        int ra = find(labels, a), rb = find(labels, b);
+        if (ra == rb) return;
+        if (labels[ra] > labels[rb]) { int t = ra; ra = rb; rb = t; } // ra is the larger (more negative)
+        labels[ra] += labels[rb];
+        labels[rb] = ra + 1;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.backend.service.core;
+
+import java.util.Locale;
+
+// Resampling filter for MatrixTransformEngine
+public enum Interpolation {
+    NEAREST, BILINEAR, BICUBIC;
+
+    public static Interpolation parse(String name) {
+        if (name == null || name.isBlank()) return NEAREST;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown interpolation: " + name);
+        }
+    }
+}
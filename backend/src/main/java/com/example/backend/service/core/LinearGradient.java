@@ -0,0 +1,55 @@
+package com.example.backend.service.core;
+
+/**
+ * Two-stop linear gradient evaluated on the fly, with GradientPaint's non-cyclic rules:
+ * colours are clamped to the end stops beyond either point. Each row is sampled at pixel
+ * centres and stepped in 32.32 fixed point, so no overlay raster is ever built.
+ */
+public final class LinearGradient {
+
+    private static final int FRAC = 32;
+    private static final long ONE = 1L << FRAC;
+
+    private final double x1, y1, dx, dy;  // (p2 - p1) / |p2 - p1|^2
+    private final int c1, c2;
+
+    public LinearGradient(double x1, double y1, int c1, double x2, double y2, int c2) {
+        double vx = x2 - x1, vy = y2 - y1, len2 = vx * vx + vy * vy;
+        this.x1 = x1;
+        this.y1 = y1;
+        // Coincident points degenerate to the start colour everywhere
+        this.dx = (len2 > 0) ? vx / len2 : 0;
+        this.dy = (len2 > 0) ? vy / len2 : 0;
+        this.c1 = c1;
+        this.c2 = c2;
+    }
+
+    // Source-over of the gradient onto rows [y0, y1) of a canvas w pixels wide, in place
+    public void blend(int[] canvas, int w, int y0, int y1, int opacity) {
+        if (opacity == 0) return;
+        boolean replace = opacity == Compositor.OPAQUE && (c1 >>> 24) == 255 && (c2 >>> 24) == 255;
+        long step = Math.round(dx * ONE);
+        for (int y = y0; y < y1; y++) {
+            long t = Math.round(((0.5 - x1) * dx + (y + 0.5 - this.y1) * dy) * ONE);
+            for (int i = y * w, end = i + w; i < end; i++, t += step) {
+                int color = at(t);
+                canvas[i] = replace ? color : Compositor.over(canvas[i], color, opacity);
+            }
+        }
+    }
+
+    // Colour at gradient position t (0 = start, ONE = end)
+    private int at(long t) {
+        if (t <= 0) return c1;
+        if (t >= ONE) return c2;
+        int f = (int) (t >>> (FRAC - 16));
+        return mix(c1 >>> 24, c2 >>> 24, f) << 24
+                | mix(c1 >>> 16 & 0xff, c2 >>> 16 & 0xff, f) << 16
+                | mix(c1 >>> 8 & 0xff, c2 >>> 8 & 0xff, f) << 8
+                | mix(c1 & 0xff, c2 & 0xff, f);
+    }
+
+    private static int mix(int a, int b, int f) {
+        return a + ((b - a) * f >> 16);
+    }
+}
@@ -1,44 +1,320 @@
 
 package com.example.backend.service.core;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import org.springframework.stereotype.Component;
 
+/**
+ * Inverse-mapping transforms: each destination pixel centre is pulled from
+ * m * (dest - destCenter) + srcCenter with nearest, bilinear or bicubic sampling.
+ * Axis-aligned matrices (flips, quarter turns, transposes) are detected and handled
+ * as exact memory permutations instead.
+ */
 @Component
 public class MatrixTransformEngine {
 
+    // Output tile edge for quarter-turn kernels; a tile's source rows stay in cache
+    private static final int BLOCK = 64;
+    private static final double EPS = 1e-9;
+    // Rasterizer: 32.32 fixed-point source positions
+    private static final int FRAC = 32;
+    private static final long ONE = 1L << FRAC;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+
+    private final TileScheduler scheduler;
+
+    public MatrixTransformEngine(TileScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
     public BufferedImage applyTransform(BufferedImage original, double[][] m, int destWidth, int destHeight) {
-        BufferedImage out = new BufferedImage(destWidth, destHeight, BufferedImage.TYPE_INT_ARGB);
+        return applyTransform(PixelBuffer.wrap(original), m, destWidth, destHeight).image();
+    }
+
+    public PixelBuffer applyTransform(PixelBuffer src, double[][] m, int destWidth, int destHeight) {
+        return applyTransform(src, m, destWidth, destHeight, Interpolation.NEAREST);
+    }
+
+    public PixelBuffer applyTransform(PixelBuffer src, double[][] m, int destWidth, int destHeight, Interpolation mode) {
+        PixelBuffer fast = permute(src, m, destWidth, destHeight);
+        if (fast != null) return fast;
+        return rasterize(src, m, destWidth, destHeight, 0, 0, destWidth, destHeight, mode);
+    }
+
+    /**
+     * Renders only the window (in destination coordinates, inside the destination bounds)
+     * of the destWidth x destHeight result, so the cost is bounded by the window size.
+     */
+    public PixelBuffer applyTransform(PixelBuffer src, double[][] m, int destWidth, int destHeight,
+                                      Rectangle window, Interpolation mode) {
+        if (window.x == 0 && window.y == 0 && window.width == destWidth && window.height == destHeight) {
+            return applyTransform(src, m, destWidth, destHeight, mode);
+        }
+        return rasterize(src, m, destWidth, destHeight, window.x, window.y, window.width, window.height, mode);
+    }
+
+    /**
+     * Runs a whole {@link TransformChain} as one resampling pass into a new buffer. A chain
+     * that collapses to the identity is not resampled; the result is a plain copy of src,
+     * so callers may still modify it (src is often a shared cached raster).
+     */
+    public PixelBuffer apply(PixelBuffer src, TransformChain chain, Interpolation mode) {
+        if (chain.isIdentity()) return src.copy();
+        return applyTransform(src, chain.matrix(), chain.width(), chain.height(), mode);
+    }
+
+    // Windowed form of apply(); the window is in the chain's output coordinates
+    public PixelBuffer apply(PixelBuffer src, TransformChain chain, Rectangle window, Interpolation mode) {
+        if (chain.isIdentity() && window.x == 0 && window.y == 0
+                && window.width == src.width() && window.height == src.height()) {
+            return src.copy();
+        }
+        return applyTransform(src, chain.matrix(), chain.width(), chain.height(), window, mode);
+    }
+
+    // --- GENERAL AFFINE RASTERIZER ---
+
+    /**
+     * Renders the [ox, ox + outW) x [oy, oy + outH) window of a destWidth x destHeight
+     * transform. Along a row the source position is linear in x, so it is stepped in
+     * 32.32 fixed point; the row's in-bounds span is solved analytically and everything
+     * outside it is bulk-filled with the background.
+     */
+    private PixelBuffer rasterize(PixelBuffer src, double[][] m, int destWidth, int destHeight,
+                                  int ox, int oy, int outW, int outH, Interpolation mode) {
+        PixelBuffer out = PixelBuffer.create(outW, outH);
+        int[] srcPx = src.data();
+        int[] outPx = out.data();
+        int srcW = src.width();
+        int srcH = src.height();
 
         // Center points for rotation/scaling relative to their respective sizes
-        double srcCx = original.getWidth() / 2.0;
-        double srcCy = original.getHeight() / 2.0;
+        double srcCx = srcW / 2.0;
+        double srcCy = srcH / 2.0;
         double destCx = destWidth / 2.0;
         double destCy = destHeight / 2.0;
 
-        for (int y = 0; y < destHeight; y++) {
-            for (int x = 0; x < destWidth; x++) {
+        long stepX = toFixed(m[0][0]);
+        long stepY = toFixed(m[1][0]);
+        // Filters sample around pixel centres, so they work in "index" space (position - 0.5)
+        long bias = (mode == Interpolation.NEAREST) ? 0 : ONE / 2;
+        long limitX = (long) srcW << FRAC, limitY = (long) srcH << FRAC;
 
-                // Translate to origin (relative to destination center)
-                double dx = x - destCx;
-                double dy = y - destCy;
+        scheduler.run(PixelOperator.gather((s, d, y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                // Source position of the row's first window pixel, stepped from destination x = 0
+                // so a window samples exactly where the full render would
+                double dx = 0.5 - destCx;
+                double dy = oy + y + 0.5 - destCy;
+                long fx = toFixed(m[0][0] * dx + m[0][1] * dy + srcCx) + ox * stepX;
+                long fy = toFixed(m[1][0] * dx + m[1][1] * dy + srcCy) + ox * stepY;
 
-                // Apply inverse transformation to find source coordinates
-                double srcX = m[0][0] * dx + m[0][1] * dy + srcCx;
-                double srcY = m[1][0] * dx + m[1][1] * dy + srcCy;
+                int row = y * outW;
+                int xs = spanStart(fx, stepX, limitX, fy, stepY, limitY, outW);
+                int xe = spanEnd(fx, stepX, limitX, fy, stepY, limitY, xs, outW);
 
-                // Nearest Neighbor Interpolation (using floor to get exact pixel blocks)
-                int ix = (int) Math.floor(srcX);
-                int iy = (int) Math.floor(srcY);
+                // Background color for out-of-bounds (e.g., after rotation)
+                Arrays.fill(outPx, row, row + xs, BACKGROUND);
+                Arrays.fill(outPx, row + xe, row + outW, BACKGROUND);
 
-                if (ix >= 0 && ix < original.getWidth() && iy >= 0 && iy < original.getHeight()) {
-                    out.setRGB(x, y, original.getRGB(ix, iy));
-                } else {
-                    // Background color for out-of-bounds (e.g., after rotation)
-                    out.setRGB(x, y, 0xFFFFFFFF); 
+                long px = fx + xs * stepX - bias, py = fy + xs * stepY - bias;
+                switch (mode) {
+                    case NEAREST:
+                        for (int x = xs; x < xe; x++, px += stepX, py += stepY) {
+                            outPx[row + x] = srcPx[(int) (py >> FRAC) * srcW + (int) (px >> FRAC)];
+                        }
+                        break;
+                    case BILINEAR:
+                        for (int x = xs; x < xe; x++, px += stepX, py += stepY) {
+                            outPx[row + x] = bilinear(srcPx, srcW, srcH, px, py);
+                        }
+                        break;
+                    default:
+                        for (int x = xs; x < xe; x++, px += stepX, py += stepY) {
+                            outPx[row + x] = bicubic(srcPx, srcW, srcH, px, py);
+                        }
                 }
             }
+        }), src, out);
+        return out;
+    }
+
+    private static long toFixed(double v) {
+        return Math.round(v * ONE);
+    }
+
+    private static boolean inside(long v, long limit) {
+        return v >= 0 && v < limit;
+    }
+
+    private static boolean inside(long fx, long stepX, long limitX, long fy, long stepY, long limitY, int x) {
+        return inside(fx + x * stepX, limitX) && inside(fy + x * stepY, limitY);
+    }
+
+    // First x in [0, n) whose source position is inside the image, or n if there is none
+    private static int spanStart(long fx, long stepX, long limitX, long fy, long stepY, long limitY, int n) {
+        double[] bx = bounds(fx, stepX, limitX), by = bounds(fy, stepY, limitY);
+        double lo = Math.max(0, Math.max(bx[0], by[0]));
+        double hi = Math.min(n, Math.min(bx[1], by[1]));
+        if (!(lo < hi)) return n;
+
+        // The analytic estimate can be off by one at the edges; settle it on the exact values
+        int x = (int) Math.max(0, Math.min(n, Math.ceil(lo)));
+        while (x > 0 && inside(fx, stepX, limitX, fy, stepY, limitY, x - 1)) x--;
+        while (x < n && !inside(fx, stepX, limitX, fy, stepY, limitY, x)) x++;
+        return x;
+    }
+
+    // One past the last inside x, scanning from a known start
+    private static int spanEnd(long fx, long stepX, long limitX, long fy, long stepY, long limitY, int xs, int n) {
+        if (xs >= n) return xs;
+        double[] bx = bounds(fx, stepX, limitX), by = bounds(fy, stepY, limitY);
+        double hi = Math.min(n, Math.min(bx[1], by[1]));
+
+        int x = (int) Math.max(xs + 1, Math.min(n, Math.ceil(hi)));
+        while (x < n && inside(fx, stepX, limitX, fy, stepY, limitY, x)) x++;
+        while (x > xs + 1 && !inside(fx, stepX, limitX, fy, stepY, limitY, x - 1)) x--;
+        return x;
+    }
+
+    // Real interval of x with 0 <= f + x * step < limit
+    private static double[] bounds(long f, long step, long limit) {
+        if (step == 0) {
+            return inside(f, limit) ? new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY}
+                                    : new double[]{0, 0};
+        }
+        double a = (0 - (double) f) / step, b = ((double) limit - f) / step;
+        return step > 0 ? new double[]{a, b} : new double[]{b, a};
+    }
+
+    // 8-bit weights; edge pixels are clamped so the span edge blends with itself, not the background
+    private static int bilinear(int[] px, int w, int h, long fx, long fy) {
+        int x0 = (int) (fx >> FRAC), y0 = (int) (fy >> FRAC);
+        int wx = (int) (fx >>> (FRAC - 8)) & 0xFF, wy = (int) (fy >>> (FRAC - 8)) & 0xFF;
+        int xa = clamp(x0, w), xb = clamp(x0 + 1, w);
+        int ra = clamp(y0, h) * w, rb = clamp(y0 + 1, h) * w;
+        int p00 = px[ra + xa], p01 = px[ra + xb], p10 = px[rb + xa], p11 = px[rb + xb];
+
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int top = ((p00 >>> shift) & 0xFF) * (256 - wx) + ((p01 >>> shift) & 0xFF) * wx;
+            int bottom = ((p10 >>> shift) & 0xFF) * (256 - wx) + ((p11 >>> shift) & 0xFF) * wx;
+            int c = (top * (256 - wy) + bottom * wy + 32768) >>> 16;
+            result |= c << shift;
+        }
+        return result;
+    }
+
+    // Catmull-Rom weights for 256 phases, scaled to 1024 (each row sums to exactly 1024)
+    private static final int[][] CUBIC = new int[256][4];
+    static {
+        for (int p = 0; p < 256; p++) {
+            double t = p / 256.0;
+            double[] k = {
+                ((-0.5 * t + 1.0) * t - 0.5) * t,
+                (1.5 * t - 2.5) * t * t + 1.0,
+                ((-1.5 * t + 2.0) * t + 0.5) * t,
+                (0.5 * t - 0.5) * t * t
+            };
+            int sum = 0;
+            for (int i = 0; i < 4; i++) {
+                CUBIC[p][i] = (int) Math.round(k[i] * 1024);
+                sum += CUBIC[p][i];
+            }
+            CUBIC[p][1] += 1024 - sum;
+        }
+    }
+
+    private static int bicubic(int[] px, int w, int h, long fx, long fy) {
+        int x0 = (int) (fx >> FRAC), y0 = (int) (fy >> FRAC);
+        int[] kx = CUBIC[(int) (fx >>> (FRAC - 8)) & 0xFF];
+        int[] ky = CUBIC[(int) (fy >>> (FRAC - 8)) & 0xFF];
+        int c0 = clamp(x0 - 1, w), c1 = clamp(x0, w), c2 = clamp(x0 + 1, w), c3 = clamp(x0 + 2, w);
+
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int acc = 0;
+            for (int j = 0; j < 4; j++) {
+                int r = clamp(y0 - 1 + j, h) * w;
+                int rowSum = ((px[r + c0] >>> shift) & 0xFF) * kx[0] + ((px[r + c1] >>> shift) & 0xFF) * kx[1]
+                           + ((px[r + c2] >>> shift) & 0xFF) * kx[2] + ((px[r + c3] >>> shift) & 0xFF) * kx[3];
+                acc += rowSum * ky[j];
+            }
+            int c = (acc + (1 << 19)) >> 20;
+            result |= Math.max(0, Math.min(255, c)) << shift;
         }
+        return result;
+    }
+
+    private static int clamp(int v, int n) {
+        return v < 0 ? 0 : (v >= n ? n - 1 : v);
+    }
+
+    // --- EXACT AXIS-ALIGNED FAST PATHS ---
+
+    /**
+     * Signed permutation matrices map pixel centres onto pixel centres, so the result
+     * is a pure reordering: sx = a * (x or y) + (w - 1) * (1 - a) / 2, likewise for sy.
+     * Returns null when m is not axis-aligned or the destination size does not match.
+     */
+    private PixelBuffer permute(PixelBuffer src, double[][] m, int destWidth, int destHeight) {
+        int m00 = unit(m[0][0]), m01 = unit(m[0][1]), m10 = unit(m[1][0]), m11 = unit(m[1][1]);
+        if (m00 == 2 || m01 == 2 || m10 == 2 || m11 == 2) return null;
+
+        int w = src.width(), h = src.height();
+        boolean straight = m01 == 0 && m10 == 0 && m00 != 0 && m11 != 0;
+        boolean quarter = m00 == 0 && m11 == 0 && m01 != 0 && m10 != 0;
+        if (straight && (destWidth != w || destHeight != h)) return null;
+        if (quarter && (destWidth != h || destHeight != w)) return null;
+        if (!straight && !quarter) return null;
+
+        PixelBuffer out = PixelBuffer.create(destWidth, destHeight);
+        int[] in = src.data(), px = out.data();
+
+        if (straight) {
+            boolean mirrorX = m00 < 0, mirrorY = m11 < 0;
+            scheduler.run(PixelOperator.gather((s, d, y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    int from = (mirrorY ? h - 1 - y : y) * w;
+                    int to = y * w;
+                    if (!mirrorX) {
+                        // Identity or vertical flip: whole-row moves
+                        System.arraycopy(in, from, px, to, w);
+                    } else {
+                        // Horizontal flip: row reversal
+                        for (int x = 0, sx = from + w - 1; x < w; x++, sx--) px[to + x] = in[sx];
+                    }
+                }
+            }), src, out);
+            return out;
+        }
+
+        // Quarter turns and transposes: out(x, y) = in(sx(y), sy(x)), walked in BLOCK x BLOCK tiles
+        int ax = m01, bx = (w - 1) * (1 - m01) / 2;
+        int ay = m10, by = (h - 1) * (1 - m10) / 2;
+        scheduler.run(PixelOperator.gather((s, d, y0, y1) -> {
+            for (int ty = y0; ty < y1; ty += BLOCK) {
+                int tyEnd = Math.min(y1, ty + BLOCK);
+                for (int tx = 0; tx < destWidth; tx += BLOCK) {
+                    int txEnd = Math.min(destWidth, tx + BLOCK);
+                    for (int y = ty; y < tyEnd; y++) {
+                        int sx = ax * y + bx;
+                        int row = y * destWidth;
+                        for (int x = tx; x < txEnd; x++) {
+                            px[row + x] = in[(ay * x + by) * w + sx];
+                        }
+                    }
+                }
+            }
+        }), src, out);
         return out;
     }
-}
\ No newline at end of file
+
+    // -1, 0 or 1 when v is (numerically) one of those, otherwise 2
+    private static int unit(double v) {
+        long r = Math.round(v);
+        return (Math.abs(v - r) < EPS && Math.abs(r) <= 1) ? (int) r : 2;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.backend.service.core;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Packed ARGB view over a TYPE_INT_ARGB image.
+ * The int[] returned by {@link #data()} is the image's own DataBufferInt bank, so
+ * reads and writes go straight to the raster without getRGB/setRGB conversions.
+ * Pixels are stored row-major: index = y * width + x.
+ */
+public final class PixelBuffer {
+
+    private final BufferedImage image;
+    private final int[] data;
+    private final int width;
+    private final int height;
+
+    private PixelBuffer(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    // Blank (fully transparent) buffer
+    public static PixelBuffer create(int width, int height) {
+        return new PixelBuffer(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+    }
+
+    // Zero-copy when the image is already packed ARGB, otherwise converts once
+    public static PixelBuffer wrap(BufferedImage img) {
+        return new PixelBuffer(toArgb(img));
+    }
+
+    /**
+     * Returns the image itself if it is a plain TYPE_INT_ARGB raster,
+     * otherwise a TYPE_INT_ARGB copy of it.
+     */
+    public static BufferedImage toArgb(BufferedImage img) {
+        if (isPacked(img)) return img;
+
+        BufferedImage out = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        return out;
+    }
+
+    // True when the image's DataBufferInt can be indexed as y * width + x
+    public static boolean isPacked(BufferedImage img) {
+        if (img.getType() != BufferedImage.TYPE_INT_ARGB) return false;
+        WritableRaster raster = img.getRaster();
+        DataBuffer db = raster.getDataBuffer();
+        if (!(db instanceof DataBufferInt) || db.getNumBanks() != 1 || db.getOffset() != 0) return false;
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) return false;
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm)) return false;
+        return sm.getScanlineStride() == img.getWidth();
+    }
+
+    public PixelBuffer copy() {
+        PixelBuffer c = create(width, height);
+        System.arraycopy(data, 0, c.data, 0, data.length);
+        return c;
+    }
+
+    public int get(int x, int y) {
+        return data[y * width + x];
+    }
+
+    public void set(int x, int y, int argb) {
+        data[y * width + x] = argb;
+    }
+
+    public int[] data() {
+        return data;
+    }
+
+    public BufferedImage image() {
+        return image;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.backend.service.core;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the kernel implementation once at startup. The SIMD kernels are used when
+ * {@code pixel.simd.enabled} is true and the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}; otherwise everything stays scalar.
+ */
+@Component
+public class PixelKernelProvider {
+
+    private final PixelKernels kernels;
+
+    public PixelKernelProvider(@Value("${pixel.simd.enabled:true}") boolean enabled) {
+        this.kernels = (enabled && vectorModulePresent()) ? new VectorKernels() : ScalarKernels.INSTANCE;
+    }
+
+    public static boolean vectorModulePresent() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    public PixelKernels get() {
+        return kernels;
+    }
+
+    public boolean isVectorized() {
+        return kernels != ScalarKernels.INSTANCE;
+    }
+
+    /**
+     * Operator for a point LUT. Single brightness / contrast / grayscale stages run on the
+     * SIMD kernels when they are active; fused chains (and the scalar case) keep the tables.
+     */
+    public PixelOperator point(PointLut lut) {
+        return isVectorized() ? lut.on(kernels) : lut;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.backend.service.core;
+
+/**
+ * Data-parallel per-pixel kernels over packed ARGB ranges [from, to).
+ * {@link ScalarKernels} is the reference; {@link VectorKernels} must produce
+ * identical output.
+ */
+public interface PixelKernels {
+
+    // (int)(0.299 * r + 0.587 * g + 0.114 * b), opaque
+    void grayscale(int[] in, int[] out, int from, int to);
+
+    // clamp(c + level) per channel, opaque
+    void brightness(int[] in, int[] out, int from, int to, int level);
+
+    // clamp((int)(factor * (c - 128) + 128)) per channel, opaque
+    void contrast(int[] in, int[] out, int from, int to, int level);
+
+    /**
+     * Source-over of overlay onto canvas in place, with a 16.16 layer opacity;
+     * {@link Compositor#over(int, int, int)} is the reference.
+     */
+    void over(int[] canvas, int[] overlay, int from, int to, int opacity);
+
+    /**
+     * Sets bit i of mask for every pixel in [0, n) whose RGB distance from bg exceeds
+     * threshold. Compares squared integer distances, which is exact for integer thresholds.
+     */
+    void threshold(int[] px, int n, int bg, int threshold, long[] mask);
+
+    static double contrastFactor(int level) {
+        return (259.0 * (level + 255)) / (255.0 * (259 - level));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.service.core;
+
+/**
+ * A per-row image operation that {@link TileScheduler} can split into bands.
+ * Implementations write only rows [y0, y1) of dst and must be deterministic per
+ * pixel, so any tiling produces the same output as a single full-height call.
+ */
+@FunctionalInterface
+public interface PixelOperator {
+
+    void apply(PixelBuffer src, PixelBuffer dst, int y0, int y1);
+
+    // Source rows needed above and below each output row
+    default int halo() {
+        return 0;
+    }
+
+    // Pointwise operators only read the pixel they write and may run in place (src == dst)
+    default boolean isPointwise() {
+        return true;
+    }
+
+    // Convolution-style operator that reads up to `halo` rows around each output row
+    static PixelOperator neighbourhood(int halo, PixelOperator body) {
+        return new PixelOperator() {
+            public void apply(PixelBuffer src, PixelBuffer dst, int y0, int y1) { body.apply(src, dst, y0, y1); }
+            public int halo() { return halo; }
+            public boolean isPointwise() { return false; }
+        };
+    }
+
+    // Resampling operator (rotate, zoom...) whose output rows may read anywhere in src
+    static PixelOperator gather(PixelOperator body) {
+        return neighbourhood(0, body);
+    }
+}
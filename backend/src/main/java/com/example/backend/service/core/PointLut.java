@@ -0,0 +1,143 @@
+package com.example.backend.service.core;
+
+import com.example.backend.service.util.ImageUtil;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Compiled point operation (brightness, contrast, grayscale and any chain of them).
+ *
+ * Per-channel mappings are folded into 256-entry tables. A grayscale stage is held as
+ * three weighted luma tables (0.299 * r etc., with any earlier channel tables folded
+ * in) plus per-channel tables applied to the resulting gray level. Chaining with
+ * {@link #then} composes the tables, so a whole chain costs a single pass.
+ * Output alpha is always 0xff, matching the individual services.
+ */
+public final class PointLut implements PixelOperator {
+
+    private enum Stage { BRIGHTNESS, CONTRAST, GRAYSCALE }
+
+    private final int[] r, g, b;          // channel tables (applied to the gray level when luma != null)
+    private final double[][] luma;        // {wr, wg, wb} or null when there is no grayscale stage
+    private final Stage stage;            // set only for a single unfused stage
+    private final int level;
+
+    private PointLut(int[] r, int[] g, int[] b, double[][] luma) {
+        this(r, g, b, luma, null, 0);
+    }
+
+    private PointLut(int[] r, int[] g, int[] b, double[][] luma, Stage stage, int level) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.luma = luma;
+        this.stage = stage;
+        this.level = level;
+    }
+
+    public static PointLut identity() {
+        int[] t = table(v -> v);
+        return new PointLut(t, t, t, null);
+    }
+
+    public static PointLut brightness(int level) {
+        int[] t = table(v -> ImageUtil.clamp(v + level));
+        return new PointLut(t, t, t, null, Stage.BRIGHTNESS, level);
+    }
+
+    public static PointLut contrast(int level) {
+        double factor = PixelKernels.contrastFactor(level);
+        int[] t = table(v -> ImageUtil.clamp((int)(factor * (v - 128) + 128)));
+        return new PointLut(t, t, t, null, Stage.CONTRAST, level);
+    }
+
+    // Same weights as the original (int)(0.299 * r + 0.587 * g + 0.114 * b), summed in the same order
+    public static PointLut grayscale() {
+        double[] wr = new double[256], wg = new double[256], wb = new double[256];
+        for (int v = 0; v < 256; v++) {
+            wr[v] = 0.299 * v;
+            wg[v] = 0.587 * v;
+            wb[v] = 0.114 * v;
+        }
+        int[] t = table(v -> v);
+        return new PointLut(t, t, t, new double[][] {wr, wg, wb}, Stage.GRAYSCALE, 0);
+    }
+
+    // Fuses this operation followed by next into a single table set
+    public PointLut then(PointLut next) {
+        if (next.luma == null) {
+            // Channel tables just compose
+            return new PointLut(compose(r, next.r), compose(g, next.g), compose(b, next.b), luma);
+        }
+        if (luma == null) {
+            // Fold our channel tables into next's weighted luma tables
+            double[][] folded = {fold(r, next.luma[0]), fold(g, next.luma[1]), fold(b, next.luma[2])};
+            return new PointLut(next.r, next.g, next.b, folded);
+        }
+        // Both have a luma stage: the second gray level is a function of the first one only
+        int[] gray2 = new int[256];
+        for (int v = 0; v < 256; v++) {
+            gray2[v] = (int)(next.luma[0][r[v]] + next.luma[1][g[v]] + next.luma[2][b[v]]);
+        }
+        return new PointLut(compose(gray2, next.r), compose(gray2, next.g), compose(gray2, next.b), luma);
+    }
+
+    // The same operation on arithmetic kernels; chains without a direct kernel return this
+    public PixelOperator on(PixelKernels kernels) {
+        if (stage == null) return this;
+        switch (stage) {
+            case BRIGHTNESS:
+                return (src, dst, y0, y1) -> kernels.brightness(src.data(), dst.data(), y0 * src.width(), y1 * src.width(), level);
+            case CONTRAST:
+                return (src, dst, y0, y1) -> kernels.contrast(src.data(), dst.data(), y0 * src.width(), y1 * src.width(), level);
+            default:
+                return (src, dst, y0, y1) -> kernels.grayscale(src.data(), dst.data(), y0 * src.width(), y1 * src.width());
+        }
+    }
+
+    public int map(int rgb) {
+        int ri = (rgb >> 16) & 255, gi = (rgb >> 8) & 255, bi = rgb & 255;
+        if (luma != null) {
+            int gray = (int)(luma[0][ri] + luma[1][gi] + luma[2][bi]);
+            ri = gi = bi = gray;
+        }
+        return (0xff << 24) | (r[ri] << 16) | (g[gi] << 8) | b[bi];
+    }
+
+    @Override
+    public void apply(PixelBuffer src, PixelBuffer dst, int y0, int y1) {
+        int[] in = src.data(), out = dst.data();
+        int start = y0 * src.width(), end = y1 * src.width();
+        if (luma == null) {
+            for (int i = start; i < end; i++) {
+                int rgb = in[i];
+                out[i] = (0xff << 24) | (r[(rgb >> 16) & 255] << 16) | (g[(rgb >> 8) & 255] << 8) | b[rgb & 255];
+            }
+        } else {
+            double[] wr = luma[0], wg = luma[1], wb = luma[2];
+            for (int i = start; i < end; i++) {
+                int rgb = in[i];
+                int gray = (int)(wr[(rgb >> 16) & 255] + wg[(rgb >> 8) & 255] + wb[rgb & 255]);
+                out[i] = (0xff << 24) | (r[gray] << 16) | (g[gray] << 8) | b[gray];
+            }
+        }
+    }
+
+    private static int[] table(IntUnaryOperator f) {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) t[v] = f.applyAsInt(v);
+        return t;
+    }
+
+    private static int[] compose(int[] first, int[] second) {
+        int[] t = new int[256];
+        for (int v = 0; v < 256; v++) t[v] = second[first[v]];
+        return t;
+    }
+
+    private static double[] fold(int[] first, double[] weights) {
+        double[] t = new double[256];
+        for (int v = 0; v < 256; v++) t[v] = weights[first[v]];
+        return t;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backend.service.core;
+
+import com.example.backend.service.util.ImageUtil;
+
+public final class ScalarKernels implements PixelKernels {
+
+    public static final ScalarKernels INSTANCE = new ScalarKernels();
+
+    private ScalarKernels() {}
+
+    @Override
+    public void grayscale(int[] in, int[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int rgb = in[i];
+            int gray = (int)(0.299 * ((rgb >> 16) & 255) + 0.587 * ((rgb >> 8) & 255) + 0.114 * (rgb & 255));
+            out[i] = (0xff << 24) | (gray << 16) | (gray << 8) | gray;
+        }
+    }
+
+    @Override
+    public void brightness(int[] in, int[] out, int from, int to, int level) {
+        for (int i = from; i < to; i++) {
+            int rgb = in[i];
+            int r = ImageUtil.clamp(((rgb >> 16) & 255) + level);
+            int g = ImageUtil.clamp(((rgb >> 8) & 255) + level);
+            int b = ImageUtil.clamp((rgb & 255) + level);
+            out[i] = (0xff << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    @Override
+    public void contrast(int[] in, int[] out, int from, int to, int level) {
+        double factor = PixelKernels.contrastFactor(level);
+        for (int i = from; i < to; i++) {
+            int rgb = in[i];
+            int r = ImageUtil.clamp((int)(factor * (((rgb >> 16) & 255) - 128) + 128));
+            int g = ImageUtil.clamp((int)(factor * (((rgb >> 8) & 255) - 128) + 128));
+            int b = ImageUtil.clamp((int)(factor * ((rgb & 255) - 128) + 128));
+            out[i] = (0xff << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    @Override
+    public void over(int[] canvas, int[] overlay, int from, int to, int opacity) {
+        Compositor.over(canvas, overlay, from, to, opacity);
+    }
+
+    @Override
+    public void threshold(int[] px, int n, int bg, int threshold, long[] mask) {
+        int limit = squaredLimit(threshold);
+        int br = (bg >> 16) & 255, bgG = (bg >> 8) & 255, bb = bg & 255;
+        for (int i = 0; i < n; i++) {
+            int rgb = px[i];
+            int dr = ((rgb >> 16) & 255) - br;
+            int dg = ((rgb >> 8) & 255) - bgG;
+            int db = (rgb & 255) - bb;
+            if (dr * dr + dg * dg + db * db > limit) mask[i >>> 6] |= 1L << i;
+        }
+    }
+
+    // sqrt(d2) > t  <=>  d2 > t * t; distances never exceed sqrt(3) * 255 < 442
+    static int squaredLimit(int threshold) {
+        if (threshold < 0) return -1;
+        int t = Math.min(threshold, 442);
+        return t * t;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.backend.service.core;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs {@link PixelOperator}s over horizontal bands on a dedicated ForkJoinPool.
+ * Bands are sized to roughly {@code pixel.tiles.tile-pixels} output pixels so the
+ * working set of a band (plus its halo rows) stays in cache.
+ */
+@Component
+public class TileScheduler implements DisposableBean {
+
+    private final ForkJoinPool pool;
+    private final int tilePixels;
+
+    public TileScheduler(
+            @Value("${pixel.tiles.threads:0}") int threads,
+            @Value("${pixel.tiles.tile-pixels:65536}") int tilePixels) {
+        int parallelism = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+        this.tilePixels = Math.max(1, tilePixels);
+    }
+
+    public PixelBuffer run(PixelOperator op, PixelBuffer src, PixelBuffer dst) {
+        if (src == dst && !op.isPointwise()) {
+            throw new IllegalArgumentException("Neighbourhood operators cannot run in place");
+        }
+
+        int h = dst.height();
+        // Keep the halo overhead (2 * halo re-read rows) at most equal to the band itself
+        int rowsPerTile = Math.max(Math.max(1, tilePixels / Math.max(1, dst.width())), 2 * op.halo());
+
+        if (h <= rowsPerTile || pool.getParallelism() == 1) {
+            op.apply(src, dst, 0, h);
+        } else {
+            pool.invoke(new Band(op, src, dst, 0, h, rowsPerTile));
+        }
+        return dst;
+    }
+
+    // In-place convenience for pointwise operators
+    public PixelBuffer run(PixelOperator op, PixelBuffer buf) {
+        return run(op, buf, buf);
+    }
+
+    // Runs body(i) for every i in [0, tasks) on the pool and waits for all of them
+    public void parallel(int tasks, IntConsumer body) {
+        if (tasks <= 1 || pool.getParallelism() == 1) {
+            for (int i = 0; i < tasks; i++) body.accept(i);
+        } else {
+            pool.invoke(new Range(body, 0, tasks));
+        }
+    }
+
+    // Starts task on the pool without waiting, so it overlaps whatever the caller runs next.
+    // A FutureTask (rather than pool.submit) keeps checked exceptions as the ExecutionException cause
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        pool.execute(future);
+        return future;
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private static final class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PixelOperator op;
+        private final PixelBuffer src, dst;
+        private final int y0, y1, rowsPerTile;
+
+        Band(PixelOperator op, PixelBuffer src, PixelBuffer dst, int y0, int y1, int rowsPerTile) {
+            this.op = op;
+            this.src = src;
+            this.dst = dst;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.rowsPerTile = rowsPerTile;
+        }
+
+        @Override
+        protected void compute() {
+            if (y1 - y0 <= rowsPerTile) {
+                op.apply(src, dst, y0, y1);
+                return;
+            }
+            int mid = y0 + (y1 - y0) / 2;
+            invokeAll(new Band(op, src, dst, y0, mid, rowsPerTile),
+                      new Band(op, src, dst, mid, y1, rowsPerTile));
+        }
+    }
+
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer body;
+        private final int from, to;
+
+        Range(IntConsumer body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                body.accept(from);
+                return;
+            }
+            int mid = from + (to - from) / 2;
+            invokeAll(new Range(body, from, mid), new Range(body, mid, to));
+        }
+    }
+}
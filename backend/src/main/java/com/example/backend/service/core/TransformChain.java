@@ -0,0 +1,98 @@
+package com.example.backend.service.core;
+
+/**
+ * Fluent builder for a chain of centre-anchored geometric steps, in the inverse-mapping
+ * form {@link MatrixTransformEngine} uses (src = m * (dest - destCenter) + srcCenter).
+ * Centres cancel between steps, so the chain is just the product of the step matrices;
+ * the output size is tracked step by step, giving the same bounding box as running the
+ * steps one at a time. {@link MatrixTransformEngine#apply} then resamples once.
+ */
+public final class TransformChain {
+
+    private static final double EPS = 1e-9;
+
+    private final int srcWidth;
+    private final int srcHeight;
+    private double a = 1, b = 0, c = 0, d = 1; // [[a, b], [c, d]]
+    private int width;
+    private int height;
+    private int steps;
+
+    private TransformChain(int width, int height) {
+        this.srcWidth = width;
+        this.srcHeight = height;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static TransformChain of(int width, int height) {
+        return new TransformChain(width, height);
+    }
+
+    public static TransformChain of(PixelBuffer src) {
+        return of(src.width(), src.height());
+    }
+
+    // Counter-clockwise by angle degrees, expanding to the rotated bounding box
+    public TransformChain rotate(double angle) {
+        double rad = Math.toRadians(angle);
+        double sin = Math.abs(Math.sin(rad));
+        double cos = Math.abs(Math.cos(rad));
+        int newW = (int) Math.floor(width * cos + height * sin);
+        int newH = (int) Math.floor(height * cos + width * sin);
+        return then(new double[][]{
+            { Math.cos(rad), Math.sin(rad) },
+            { -Math.sin(rad), Math.cos(rad) }
+        }, newW, newH);
+    }
+
+    public TransformChain flipHorizontal() {
+        return then(new double[][]{{-1, 0}, {0, 1}}, width, height);
+    }
+
+    public TransformChain flipVertical() {
+        return then(new double[][]{{1, 0}, {0, -1}}, width, height);
+    }
+
+    public TransformChain scale(double scale) {
+        if (!(scale > 0) || Double.isInfinite(scale)) {
+            throw new IllegalArgumentException("Scale must be a positive number.");
+        }
+        int newW = (int) Math.max(1, width * scale);
+        int newH = (int) Math.max(1, height * scale);
+        return then(new double[][]{{1.0 / scale, 0}, {0, 1.0 / scale}}, newW, newH);
+    }
+
+    // Appends an arbitrary inverse-mapping step producing a destWidth x destHeight image
+    public TransformChain then(double[][] m, int destWidth, int destHeight) {
+        double na = a * m[0][0] + b * m[1][0], nb = a * m[0][1] + b * m[1][1];
+        double nc = c * m[0][0] + d * m[1][0], nd = c * m[0][1] + d * m[1][1];
+        a = na; b = nb; c = nc; d = nd;
+        width = destWidth;
+        height = destHeight;
+        steps++;
+        return this;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int steps() {
+        return steps;
+    }
+
+    public double[][] matrix() {
+        return new double[][]{{a, b}, {c, d}};
+    }
+
+    // Same size as the source and (up to rounding) the identity matrix: nothing to resample
+    public boolean isIdentity() {
+        return width == srcWidth && height == srcHeight
+                && Math.abs(a - 1) < EPS && Math.abs(b) < EPS && Math.abs(c) < EPS && Math.abs(d - 1) < EPS;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.backend.service.core;
+
+import jdk.incubator.vector.*;
+
+/**
+ * jdk.incubator.vector versions of {@link ScalarKernels}. Every lane performs the same
+ * IEEE operations in the same order as the scalar code (no fused multiply-add), so
+ * results are bit-identical; leftover pixels at the end of a range go to the scalar path.
+ *
+ * Only load this class when the module is present; see {@link PixelKernelProvider}.
+ */
+final class VectorKernels implements PixelKernels {
+
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+    // Ints and doubles with matching lane counts for the double-precision kernels
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> ID =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(D.vectorBitSize() / 2));
+
+    private static final ScalarKernels TAIL = ScalarKernels.INSTANCE;
+
+    @Override
+    public void grayscale(int[] in, int[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + ID.loopBound(to - from); i < bound; i += ID.length()) {
+            IntVector v = IntVector.fromArray(ID, in, i);
+            DoubleVector gray = toDouble(channel(v, 16)).mul(0.299)
+                    .add(toDouble(channel(v, 8)).mul(0.587))
+                    .add(toDouble(channel(v, 0)).mul(0.114));
+            IntVector g = toInt(gray);
+            opaque(g, g, g).intoArray(out, i);
+        }
+        TAIL.grayscale(in, out, i, to);
+    }
+
+    @Override
+    public void brightness(int[] in, int[] out, int from, int to, int level) {
+        int i = from;
+        for (int bound = from + I.loopBound(to - from); i < bound; i += I.length()) {
+            IntVector v = IntVector.fromArray(I, in, i);
+            opaque(clamp(channel(v, 16).add(level)),
+                   clamp(channel(v, 8).add(level)),
+                   clamp(channel(v, 0).add(level))).intoArray(out, i);
+        }
+        TAIL.brightness(in, out, i, to, level);
+    }
+
+    @Override
+    public void contrast(int[] in, int[] out, int from, int to, int level) {
+        double factor = PixelKernels.contrastFactor(level);
+        // Out-of-range double -> int conversions differ from Java's cast; leave those levels to the scalar path
+        if (!(Math.abs(factor) < 1e6)) {
+            TAIL.contrast(in, out, from, to, level);
+            return;
+        }
+        int i = from;
+        for (int bound = from + ID.loopBound(to - from); i < bound; i += ID.length()) {
+            IntVector v = IntVector.fromArray(ID, in, i);
+            opaque(contrast(channel(v, 16), factor),
+                   contrast(channel(v, 8), factor),
+                   contrast(channel(v, 0), factor)).intoArray(out, i);
+        }
+        TAIL.contrast(in, out, i, to, level);
+    }
+
+    /**
+     * Same arithmetic as {@link Compositor#over(int, int, int)}. Opaque-canvas lanes take the
+     * 8-bit int lerp; the others evaluate the exact rational in doubles, where every product
+     * and sum is an integer below 2^53 and the quotients are far enough from the next integer
+     * that truncating them matches the long division. The remaining scalar fast paths are
+     * special cases of the general formula; only d == 0 (both alphas zero) needs a mask.
+     */
+    @Override
+    public void over(int[] canvas, int[] overlay, int from, int to, int opacity) {
+        if (opacity == 0) return;
+        double scale = 255.0 * Compositor.OPAQUE;
+        int i = from;
+        for (int bound = from + ID.loopBound(to - from); i < bound; i += ID.length()) {
+            IntVector src = IntVector.fromArray(ID, overlay, i);
+            IntVector dst = IntVector.fromArray(ID, canvas, i);
+            IntVector ab = channel(dst, 24);
+            DoubleVector as = toDouble(channel(src, 24)).mul(opacity);
+            DoubleVector wo = as.mul(255.0);
+            DoubleVector wb = toDouble(ab).mul(as.neg().add(scale));
+            DoubleVector d = wo.add(wb);
+
+            IntVector out = toInt(d.div(scale)).lanewise(VectorOperators.LSHL, 24)
+                    .or(mix(src, dst, wo, wb, d, 16).lanewise(VectorOperators.LSHL, 16))
+                    .or(mix(src, dst, wo, wb, d, 8).lanewise(VectorOperators.LSHL, 8))
+                    .or(mix(src, dst, wo, wb, d, 0))
+                    .blend(0, d.compare(VectorOperators.EQ, 0.0).cast(ID));
+
+            IntVector a = channel(src, 24).mul(opacity).add(0x8000).lanewise(VectorOperators.LSHR, 16);
+            IntVector inv = a.neg().add(255);
+            IntVector lerp = opaque(lerp(src, dst, a, inv, 16), lerp(src, dst, a, inv, 8), lerp(src, dst, a, inv, 0));
+            out.blend(lerp, ab.compare(VectorOperators.EQ, 255)).intoArray(canvas, i);
+        }
+        TAIL.over(canvas, overlay, i, to, opacity);
+    }
+
+    @Override
+    public void threshold(int[] px, int n, int bg, int threshold, long[] mask) {
+        int limit = ScalarKernels.squaredLimit(threshold);
+        int br = (bg >> 16) & 255, bgG = (bg >> 8) & 255, bb = bg & 255;
+        int lanes = I.length(); // divides 64, and i stays lane-aligned, so bits never straddle words
+        int i = 0;
+        for (int bound = I.loopBound(n); i < bound; i += lanes) {
+            IntVector v = IntVector.fromArray(I, px, i);
+            IntVector dr = channel(v, 16).sub(br);
+            IntVector dg = channel(v, 8).sub(bgG);
+            IntVector db = channel(v, 0).sub(bb);
+            IntVector d2 = dr.mul(dr).add(dg.mul(dg)).add(db.mul(db));
+            long bits = d2.compare(VectorOperators.GT, limit).toLong();
+            mask[i >>> 6] |= bits << (i & 63);
+        }
+        for (; i < n; i++) {
+            int rgb = px[i];
+            int dr = ((rgb >> 16) & 255) - br;
+            int dg = ((rgb >> 8) & 255) - bgG;
+            int db = (rgb & 255) - bb;
+            if (dr * dr + dg * dg + db * db > limit) mask[i >>> 6] |= 1L << i;
+        }
+    }
+
+    // --- LANE HELPERS ---
+
+    private static IntVector channel(IntVector v, int shift) {
+        return v.lanewise(VectorOperators.LSHR, shift).and(255);
+    }
+
+    private static IntVector clamp(IntVector v) {
+        return v.max(0).min(255);
+    }
+
+    private static IntVector opaque(IntVector r, IntVector g, IntVector b) {
+        return r.lanewise(VectorOperators.LSHL, 16)
+                .or(g.lanewise(VectorOperators.LSHL, 8))
+                .or(b)
+                .or(0xff000000);
+    }
+
+    // (co * wo + cb * wb) / d for one channel, truncated
+    private static IntVector mix(IntVector src, IntVector dst, DoubleVector wo, DoubleVector wb, DoubleVector d, int shift) {
+        return toInt(toDouble(channel(src, shift)).mul(wo).add(toDouble(channel(dst, shift)).mul(wb)).div(d));
+    }
+
+    // Rounded (co * a + cb * (255 - a)) / 255 for one channel, as in Compositor.div255
+    private static IntVector lerp(IntVector src, IntVector dst, IntVector a, IntVector inv, int shift) {
+        IntVector x = channel(src, shift).mul(a).add(channel(dst, shift).mul(inv)).add(128);
+        return x.add(x.lanewise(VectorOperators.LSHR, 8)).lanewise(VectorOperators.LSHR, 8);
+    }
+
+    private static IntVector contrast(IntVector c, double factor) {
+        return clamp(toInt(toDouble(c.sub(128)).mul(factor).add(128.0)));
+    }
+
+    private static DoubleVector toDouble(IntVector v) {
+        return (DoubleVector) v.convertShape(VectorOperators.I2D, D, 0);
+    }
+
+    // Truncates toward zero like a Java (int) cast
+    private static IntVector toInt(DoubleVector v) {
+        return (IntVector) v.convertShape(VectorOperators.D2I, ID, 0);
+    }
+}
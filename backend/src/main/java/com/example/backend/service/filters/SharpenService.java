@@ -1,33 +1,39 @@
 package com.example.backend.service.filters;
 
 import com.example.backend.models.ImageMatrixResponse;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelOperator;
+import com.example.backend.service.core.TileScheduler;
 import com.example.backend.service.util.ImageUtil;
 import com.example.backend.service.basic.GrayscaleService; // Import GrayscaleService
 import org.springframework.stereotype.Service;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 @Service
 public class SharpenService {
 
     private final GrayscaleService grayscaleService;
+    private final TileScheduler scheduler;
 
     // Inject GrayscaleService to reuse processing logic
-    public SharpenService(GrayscaleService grayscaleService) {
+    public SharpenService(GrayscaleService grayscaleService, TileScheduler scheduler) {
         this.grayscaleService = grayscaleService;
+        this.scheduler = scheduler;
     }
 
     public ImageMatrixResponse apply(byte[] bytes, int intensity, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
+        return ImageUtil.toResponse(process(ImageUtil.decodeBuffer(bytes), intensity, grayscale));
+    }
 
+    // Raster-level entry point: returns a new buffer, src is left untouched
+    public PixelBuffer process(PixelBuffer img, int intensity, boolean grayscale) {
         // Toggle Fix: Convert to grayscale BEFORE applying the sharpening kernel
         if (grayscale) {
             img = grayscaleService.process(img);
         }
 
-        int w = img.getWidth(), h = img.getHeight();
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int w = img.width(), h = img.height();
+        PixelBuffer out = PixelBuffer.create(w, h);
 
         // Sharpening Kernel: The center value increases with intensity
         int[][] k = {
@@ -36,35 +42,34 @@ public class SharpenService {
             {0, -1, 0}
         };
 
-        // Standard 3x3 Convolution
-        for (int y = 1; y < h - 1; y++) {
-            for (int x = 1; x < w - 1; x++) {
-                int r = 0, g = 0, b = 0;
+        // Standard 3x3 Convolution (border rows/columns are left transparent)
+        scheduler.run(PixelOperator.neighbourhood(1, (s, d, y0, y1) -> {
+            int[] src = s.data(), dst = d.data();
+            for (int y = Math.max(1, y0); y < Math.min(h - 1, y1); y++) {
+                for (int x = 1; x < w - 1; x++) {
+                    int r = 0, g = 0, b = 0;
                 
-                for (int ky = -1; ky <= 1; ky++) {
-                    for (int kx = -1; kx <= 1; kx++) {
-                        int rgb = img.getRGB(x + kx, y + ky);
-                        int wgt = k[ky + 1][kx + 1];
+                    for (int ky = -1; ky <= 1; ky++) {
+                        int row = (y + ky) * w + x;
+                        for (int kx = -1; kx <= 1; kx++) {
+                            int rgb = src[row + kx];
+                            int wgt = k[ky + 1][kx + 1];
                         
-                        r += ((rgb >> 16) & 255) * wgt;
-                        g += ((rgb >> 8) & 255) * wgt;
-                        b += (rgb & 255) * wgt;
+                            r += ((rgb >> 16) & 255) * wgt;
+                            g += ((rgb >> 8) & 255) * wgt;
+                            b += (rgb & 255) * wgt;
+                        }
                     }
-                }
                 
-                // Set the sharpened pixel with clamping to prevent color overflow
-                out.setRGB(x, y, (0xff << 24) | 
-                    (ImageUtil.clamp(r) << 16) | 
-                    (ImageUtil.clamp(g) << 8) | 
-                    ImageUtil.clamp(b));
+                    // Set the sharpened pixel with clamping to prevent color overflow
+                    dst[y * w + x] = (0xff << 24) | 
+                        (ImageUtil.clamp(r) << 16) | 
+                        (ImageUtil.clamp(g) << 8) | 
+                        ImageUtil.clamp(b);
+                }
             }
-        }
-        
-        return new ImageMatrixResponse(
-            ImageUtil.encode(out),
-            LinearMatrixUtil.toLinear(out),
-            w,
-            h
-        );
+        }), img, out);
+
+        return out;
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,13 @@
 package com.example.backend.service.geometric;
 
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.core.Interpolation;
 import com.example.backend.service.core.MatrixTransformEngine;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.TransformChain;
 import com.example.backend.service.util.ImageUtil;
 import com.example.backend.service.basic.GrayscaleService;
 import org.springframework.stereotype.Service;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 @Service
@@ -22,45 +23,29 @@ public class FlipService {
     }
 
     public ImageMatrixResponse horizontal(byte[] bytes, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
-        
+        return ImageUtil.toResponse(horizontal(ImageUtil.decodeBuffer(bytes), grayscale));
+    }
+
+    public ImageMatrixResponse vertical(byte[] bytes, boolean grayscale) throws IOException {
+        return ImageUtil.toResponse(vertical(ImageUtil.decodeBuffer(bytes), grayscale));
+    }
+
+    // Raster-level entry points: return a new buffer, src is left untouched
+    public PixelBuffer horizontal(PixelBuffer img, boolean grayscale) {
         if (grayscale) {
             img = grayscaleService.process(img);
         }
 
-        int w = img.getWidth();
-        int h = img.getHeight();
-
-        // Horizontal flip matrix: [[-1, 0], [0, 1]]
-        // We pass original w and h as destWidth and destHeight
-        BufferedImage flipped = engine.applyTransform(img, new double[][]{{-1, 0}, {0, 1}}, w, h);
-        
-        return new ImageMatrixResponse(
-            ImageUtil.encode(flipped),
-            LinearMatrixUtil.toLinear(flipped),
-            flipped.getWidth(),
-            flipped.getHeight()
-        );
+        // Horizontal flip matrix: [[-1, 0], [0, 1]], same size; runs as an exact row reversal
+        return engine.apply(img, TransformChain.of(img).flipHorizontal(), Interpolation.NEAREST);
     }
 
-    public ImageMatrixResponse vertical(byte[] bytes, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
-        
+    public PixelBuffer vertical(PixelBuffer img, boolean grayscale) {
         if (grayscale) {
             img = grayscaleService.process(img);
         }
 
-        int w = img.getWidth();
-        int h = img.getHeight();
-
         // Vertical flip matrix: [[1, 0], [0, -1]]
-        BufferedImage flipped = engine.applyTransform(img, new double[][]{{1, 0}, {0, -1}}, w, h);
-        
-        return new ImageMatrixResponse(
-            ImageUtil.encode(flipped),
-            LinearMatrixUtil.toLinear(flipped),
-            flipped.getWidth(),
-            flipped.getHeight()
-        );
+        return engine.apply(img, TransformChain.of(img).flipVertical(), Interpolation.NEAREST);
     }
-}
\ No newline at end of file
+}
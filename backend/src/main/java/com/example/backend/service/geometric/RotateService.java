@@ -3,12 +3,13 @@
 package com.example.backend.service.geometric;
 
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.core.Interpolation;
 import com.example.backend.service.core.MatrixTransformEngine;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.TransformChain;
 import com.example.backend.service.util.ImageUtil;
 import com.example.backend.service.basic.GrayscaleService;
 import org.springframework.stereotype.Service;
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 
 @Service
@@ -23,37 +24,20 @@ public class RotateService {
     }
 
     public ImageMatrixResponse apply(byte[] bytes, double angle, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
+        return ImageUtil.toResponse(process(ImageUtil.decodeBuffer(bytes), angle, grayscale));
+    }
+
+    // Raster-level entry point: returns a new buffer, src is left untouched
+    public PixelBuffer process(PixelBuffer img, double angle, boolean grayscale) {
+        return process(img, angle, grayscale, Interpolation.NEAREST);
+    }
 
+    public PixelBuffer process(PixelBuffer img, double angle, boolean grayscale, Interpolation interpolation) {
         if (grayscale) {
             img = grayscaleService.process(img);
         }
 
-        double rad = Math.toRadians(angle);
-        double sin = Math.abs(Math.sin(rad));
-        double cos = Math.abs(Math.cos(rad));
-
-        int w = img.getWidth();
-        int h = img.getHeight();
-
-        // Calculate new bounding box dimensions
-        int newW = (int) Math.floor(w * cos + h * sin);
-        int newH = (int) Math.floor(h * cos + w * sin);
-
-        // Standard Rotation Matrix
-        // The engine handles the inverse mapping to pull pixels from source
-        double[][] matrix = {
-            { Math.cos(rad), Math.sin(rad) },
-            { -Math.sin(rad), Math.cos(rad) }
-        };
-
-        BufferedImage rotatedImg = engine.applyTransform(img, matrix, newW, newH);
-
-        return new ImageMatrixResponse(
-            ImageUtil.encode(rotatedImg),
-            LinearMatrixUtil.toLinear(rotatedImg),
-            rotatedImg.getWidth(),
-            rotatedImg.getHeight()
-        );
+        // Rotation matrix and bounding box live in TransformChain, shared with chained edits
+        return engine.apply(img, TransformChain.of(img).rotate(angle), interpolation);
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,16 @@
 package com.example.backend.service.geometric;
 
 import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.core.Interpolation;
 import com.example.backend.service.core.MatrixTransformEngine;
-import com.example.backend.service.matrix.LinearMatrixUtil;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.TransformChain;
 import com.example.backend.service.util.ImageUtil;
 import com.example.backend.service.basic.GrayscaleService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.awt.image.BufferedImage;
+
+import java.awt.*;
 import java.io.IOException;
 
 @Service
@@ -15,58 +19,57 @@ public class ZoomService {
     private final MatrixTransformEngine engine;
     private final GrayscaleService grayscaleService;
 
-    public ZoomService(MatrixTransformEngine engine, GrayscaleService grayscaleService) {
+    private final long maxOutputPixels;
+
+    public ZoomService(MatrixTransformEngine engine, GrayscaleService grayscaleService,
+                       @Value("${pixel.zoom.max-output-pixels:67108864}") long maxOutputPixels) {
         this.engine = engine;
         this.grayscaleService = grayscaleService;
+        this.maxOutputPixels = maxOutputPixels;
     }
 
     public ImageMatrixResponse apply(byte[] bytes, double scale, boolean grayscale) throws IOException {
-        BufferedImage img = ImageUtil.decode(bytes);
-        
-        if (grayscale) {
-            img = grayscaleService.process(img);
-        }
+        return ImageUtil.toResponse(process(ImageUtil.decodeBuffer(bytes), scale, grayscale));
+    }
 
-        // Calculate the target dimensions for the "Data Zoom"
-        int newW = (int) Math.max(1, img.getWidth() * scale);
-        int newH = (int) Math.max(1, img.getHeight() * scale);
+    // Raster-level entry point: returns a new buffer, src is left untouched
+    public PixelBuffer process(PixelBuffer img, double scale, boolean grayscale) {
+        return process(img, scale, grayscale, Interpolation.NEAREST);
+    }
 
-        // Standard scaling matrix
-        double[][] matrix = {
-            {1.0 / scale, 0}, 
-            {0, 1.0 / scale}
-        };
-        
-        // We use the original engine logic but target a new sized buffer
-        BufferedImage out = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
-        
-        // Manual coordinate mapping to ensure Nearest Neighbor (crunchy pixels)
-        double cx = img.getWidth() / 2.0;
-        double cy = img.getHeight() / 2.0;
-        double nCx = newW / 2.0;
-        double nCy = newH / 2.0;
+    public PixelBuffer process(PixelBuffer img, double scale, boolean grayscale, Interpolation interpolation) {
+        return process(img, scale, grayscale, interpolation, null);
+    }
 
-        for (int y = 0; y < newH; y++) {
-            for (int x = 0; x < newW; x++) {
-                double dx = x - nCx;
-                double dy = y - nCy;
+    /**
+     * Viewport-clipped zoom: only the viewport (in zoomed-output coordinates, clipped to the
+     * zoomed bounds) is rendered, so cost and response size follow the viewport, not the scale.
+     * A null viewport renders everything, up to pixel.zoom.max-output-pixels.
+     */
+    public PixelBuffer process(PixelBuffer img, double scale, boolean grayscale, Interpolation interpolation,
+                               Rectangle viewport) {
+        // Validates the scale and works out the zoomed size
+        TransformChain chain = TransformChain.of(img).scale(scale);
 
-                int srcX = (int) Math.floor(matrix[0][0] * dx + cx);
-                int srcY = (int) Math.floor(matrix[1][1] * dy + cy);
+        Rectangle window = new Rectangle(0, 0, chain.width(), chain.height());
+        if (viewport != null) {
+            window = window.intersection(viewport);
+            if (window.isEmpty()) throw new IllegalArgumentException("Viewport lies outside the zoomed image.");
+        }
+        checkOutputSize(window.width, window.height);
+
+        if (grayscale) {
+            img = grayscaleService.process(img);
+        }
+
+        // Shared engine, tiled across cores; nearest keeps the crunchy pixels by default
+        return engine.apply(img, chain, window, interpolation);
+    }
 
-                if (srcX >= 0 && srcX < img.getWidth() && srcY >= 0 && srcY < img.getHeight()) {
-                    out.setRGB(x, y, img.getRGB(srcX, srcY));
-                } else {
-                    out.setRGB(x, y, 0xFFFFFFFF);
-                }
-            }
+    // Guards any rendered output (zoom or a chain containing one) against pixel.zoom.max-output-pixels
+    public void checkOutputSize(int width, int height) {
+        if ((long) width * height > maxOutputPixels) {
+            throw new IllegalArgumentException("Zoomed output is too large; pass a viewport.");
         }
-        
-        return new ImageMatrixResponse(
-            ImageUtil.encode(out), 
-            LinearMatrixUtil.toLinear(out), 
-            newW, 
-            newH
-        );
     }
-}
\ No newline at end of file
+}
@@ -1,24 +1,19 @@
 package com.example.backend.service.matrix;
 
+import com.example.backend.service.core.PixelBuffer;
+
 import java.awt.image.BufferedImage;
 
 public class LinearMatrixUtil {
 
-    // Preserve full RGB integer instead of just the Blue channel
+    // Preserve full RGB integer instead of just the Blue channel.
+    // Packed ARGB images hand back their backing array (no copy), so the
+    // result must be treated as read-only by callers.
     public static int[] toLinear(BufferedImage img) {
-        int w = img.getWidth();
-        int h = img.getHeight();
-
-        int[] linear = new int[w * h];
-        int i = 0;
+        return PixelBuffer.wrap(img).data();
+    }
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                // Get the full 32-bit ARGB value
-                linear[i++] = img.getRGB(x, y); 
-            }
-        }
-        return linear;
+    public static int[] toLinear(PixelBuffer buf) {
+        return buf.data();
     }
 }
-
@@ -0,0 +1,34 @@
+package com.example.backend.service.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtil {
+
+    // Hex SHA-256 of the raw bytes; used as a content address for images
+    public static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(digest().digest(bytes));
+    }
+
+    // Hex SHA-256 of chars [from, to) taken as Latin-1 bytes (e.g. base64 text), without copying the string
+    public static String sha256(CharSequence text, int from, int to) {
+        MessageDigest md = digest();
+        byte[] chunk = new byte[8192];
+        for (int i = from; i < to; ) {
+            int n = Math.min(chunk.length, to - i);
+            for (int j = 0; j < n; j++) chunk[j] = (byte) text.charAt(i + j);
+            md.update(chunk, 0, n);
+            i += n;
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
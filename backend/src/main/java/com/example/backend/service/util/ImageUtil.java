@@ -1,21 +1,121 @@
 package com.example.backend.service.util;
 
+import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.matrix.LinearMatrixUtil;
+
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.*;
+import java.util.Iterator;
 
 public class ImageUtil {
 
+    // Always hands back TYPE_INT_ARGB so services can work on the packed int[] directly
     public static BufferedImage decode(byte[] bytes) throws IOException {
-        return ImageIO.read(new ByteArrayInputStream(bytes));
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    public static BufferedImage decode(InputStream in) throws IOException {
+        BufferedImage img = ImageIO.read(in);
+        return (img == null) ? null : PixelBuffer.toArgb(img);
+    }
+
+    public static PixelBuffer decodeBuffer(byte[] bytes) throws IOException {
+        return decodeBuffer(new ByteArrayInputStream(bytes));
+    }
+
+    public static PixelBuffer decodeBuffer(InputStream in) throws IOException {
+        BufferedImage img = decode(in);
+        if (img == null) {
+            throw new IOException("Could not decode image data.");
+        }
+        return PixelBuffer.wrap(img);
+    }
+
+    /**
+     * Decodes only the part of the image inside region (clipped to the image), using the
+     * reader's source region so memory follows the region rather than the full image.
+     * Returns null if the region misses the image; throws if the data can't be decoded.
+     */
+    public static PixelBuffer decodeRegion(byte[] bytes, Rectangle region) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = (in == null) ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) throw new IOException("Could not decode image data.");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                Rectangle clipped = region.intersection(new Rectangle(reader.getWidth(0), reader.getHeight(0)));
+                if (clipped.isEmpty()) return null;
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(clipped);
+                return PixelBuffer.wrap(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
     }
 
     public static byte[] encode(BufferedImage img) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        // Presized to roughly half the raw RGBA size so large outputs don't regrow repeatedly
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(img.getWidth() * img.getHeight() * 2 + 1024);
         ImageIO.write(img, "png", bos);
         return bos.toByteArray();
     }
 
+    /**
+     * Lossy JPEG at the given quality (0-1). The encoder sees an RGB view over the
+     * same pixel array, so nothing is copied; alpha is dropped.
+     */
+    public static byte[] encodeJpeg(PixelBuffer buf, float quality) throws IOException {
+        int w = buf.width(), h = buf.height();
+        DirectColorModel rgb = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+        WritableRaster raster = Raster.createPackedRaster(buf.image().getRaster().getDataBuffer(),
+                w, h, w, rgb.getMasks(), null);
+        BufferedImage view = new BufferedImage(rgb, raster, false, null);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(w * h / 4 + 1024);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bos)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(view, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bos.toByteArray();
+    }
+
+    // "png" or "jpeg" from the encoded bytes' signature
+    public static String formatOf(byte[] encoded) {
+        return (encoded.length > 1 && (encoded[0] & 0xff) == 0xff && (encoded[1] & 0xff) == 0xd8) ? "jpeg" : "png";
+    }
+
+    // Encodes once and exposes the buffer's own pixels as the linear matrix
+    public static ImageMatrixResponse toResponse(PixelBuffer buf) throws IOException {
+        return new ImageMatrixResponse(
+            encode(buf.image()),
+            LinearMatrixUtil.toLinear(buf),
+            buf.width(),
+            buf.height()
+        );
+    }
+
     public static int clamp(int v) {
         return Math.max(0, Math.min(255, v));
     }
@@ -0,0 +1,190 @@
+package com.example.backend.service.util;
+
+import com.example.backend.service.core.PixelBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Direct PNG writer for packed ARGB buffers with an explicit deflate level and
+ * scanline filter. Opaque images are written as 8-bit RGB, others as RGBA.
+ * ImageIO stays the default encoder; this one is used when a request (or config)
+ * asks for a specific compression level or filter, e.g. level 1 + SUB for previews.
+ */
+public class PngEncoder {
+
+    public enum Filter { NONE, SUB, UP, AVERAGE, PAETH, ADAPTIVE }
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int IDAT_SIZE = 64 * 1024;
+
+    public static byte[] encode(PixelBuffer img, int level, Filter filter) throws IOException {
+        int w = img.width(), h = img.height();
+        int[] px = img.data();
+        boolean alpha = hasAlpha(px, w * h);
+        int bpp = alpha ? 4 : 3;
+        int stride = w * bpp;
+
+        // Presize for the typical case so the buffer rarely has to grow
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(level == 0 ? (stride + 1) * h + 1024 : stride * h / 2 + 1024);
+        bos.write(SIGNATURE);
+
+        byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, w);
+        putInt(ihdr, 4, h);
+        ihdr[8] = 8;                        // bit depth
+        ihdr[9] = (byte) (alpha ? 6 : 2);   // colour type: RGBA or RGB
+        writeChunk(bos, "IHDR", ihdr, ihdr.length);
+
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream z = new DeflaterOutputStream(new IdatStream(bos), deflater, IDAT_SIZE)) {
+            byte[] prev = new byte[stride];
+            byte[] cur = new byte[stride];
+            byte[][] scratch = (filter == Filter.ADAPTIVE) ? new byte[5][stride] : new byte[1][stride];
+
+            for (int y = 0; y < h; y++) {
+                unpackRow(px, y * w, w, alpha, cur);
+                if (filter == Filter.ADAPTIVE) {
+                    int best = 0;
+                    long bestScore = Long.MAX_VALUE;
+                    for (int f = 0; f < 5; f++) {
+                        applyFilter(f, cur, prev, bpp, scratch[f]);
+                        long score = score(scratch[f]);
+                        if (score < bestScore) { bestScore = score; best = f; }
+                    }
+                    z.write(best);
+                    z.write(scratch[best]);
+                } else {
+                    int f = filter.ordinal();
+                    applyFilter(f, cur, prev, bpp, scratch[0]);
+                    z.write(f);
+                    z.write(scratch[0]);
+                }
+                byte[] t = prev; prev = cur; cur = t;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        writeChunk(bos, "IEND", new byte[0], 0);
+        return bos.toByteArray();
+    }
+
+    private static boolean hasAlpha(int[] px, int n) {
+        for (int i = 0; i < n; i++) {
+            if ((px[i] >>> 24) != 0xff) return true;
+        }
+        return false;
+    }
+
+    private static void unpackRow(int[] px, int off, int w, boolean alpha, byte[] row) {
+        int j = 0;
+        for (int x = 0; x < w; x++) {
+            int argb = px[off + x];
+            row[j++] = (byte) (argb >> 16);
+            row[j++] = (byte) (argb >> 8);
+            row[j++] = (byte) argb;
+            if (alpha) row[j++] = (byte) (argb >>> 24);
+        }
+    }
+
+    // PNG filter types 0-4 (none, sub, up, average, paeth)
+    private static void applyFilter(int type, byte[] cur, byte[] prev, int bpp, byte[] out) {
+        int n = cur.length;
+        for (int i = 0; i < n; i++) {
+            int x = cur[i] & 0xff;
+            int a = (i >= bpp) ? cur[i - bpp] & 0xff : 0;
+            int b = prev[i] & 0xff;
+            int c = (i >= bpp) ? prev[i - bpp] & 0xff : 0;
+            int p;
+            switch (type) {
+                case 1: p = a; break;
+                case 2: p = b; break;
+                case 3: p = (a + b) >> 1; break;
+                case 4: p = paeth(a, b, c); break;
+                default: p = 0;
+            }
+            out[i] = (byte) (x - p);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        return (pb <= pc) ? b : c;
+    }
+
+    // Minimum sum of absolute differences heuristic from the PNG spec
+    private static long score(byte[] row) {
+        long s = 0;
+        for (byte v : row) s += Math.abs((int) v);
+        return s;
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int len) throws IOException {
+        byte[] head = new byte[8];
+        putInt(head, 0, len);
+        for (int i = 0; i < 4; i++) head[4 + i] = (byte) type.charAt(i);
+        CRC32 crc = new CRC32();
+        crc.update(head, 4, 4);
+        crc.update(data, 0, len);
+        byte[] tail = new byte[4];
+        putInt(tail, 0, (int) crc.getValue());
+
+        out.write(head);
+        out.write(data, 0, len);
+        out.write(tail);
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    // Splits the compressed stream into IDAT chunks of at most IDAT_SIZE bytes
+    private static final class IdatStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buf = new byte[IDAT_SIZE];
+        private int len;
+
+        IdatStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (len == buf.length) flushChunk();
+            buf[len++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int n) throws IOException {
+            while (n > 0) {
+                if (len == buf.length) flushChunk();
+                int k = Math.min(n, buf.length - len);
+                System.arraycopy(b, off, buf, len, k);
+                len += k;
+                off += k;
+                n -= k;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (len == 0) return;
+            writeChunk(out, "IDAT", buf, len);
+            len = 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.backend.service.util;
+
+/**
+ * Read-only view of chars [start, end) of a String. Lets parsers hand out large values
+ * (e.g. base64 image data) without copying them; toString() is the only copy.
+ */
+public final class TextSlice implements CharSequence {
+
+    private final String source;
+    private final int start;
+    private final int end;
+
+    public TextSlice(String source, int start, int end) {
+        if (start < 0 || end > source.length() || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + source.length());
+        }
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new TextSlice(source, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return source.substring(start, end);
+    }
+}
@@ -0,0 +1,41 @@
+# Long-lived rembg worker for RembgWorkerPool.
+# Frames on stdin/stdout are a 4-byte big-endian length followed by PNG bytes.
+# A zero-length frame is a ping and is answered with a zero-length frame;
+# a length of -1 reports that this image failed but the worker is still usable.
+import io
+import struct
+import sys
+
+from PIL import Image
+from rembg import new_session, remove
+
+session = new_session()
+inp = sys.stdin.buffer
+out = sys.stdout.buffer
+
+
+def send(data, length=None):
+    out.write(struct.pack('>i', len(data) if length is None else length))
+    out.write(data)
+    out.flush()
+
+
+send(b'')  # ready: the model is loaded
+
+while True:
+    header = inp.read(4)
+    if len(header) < 4:
+        break
+    n = struct.unpack('>i', header)[0]
+    if n == 0:
+        send(b'')
+        continue
+    payload = inp.read(n)
+    try:
+        img = Image.open(io.BytesIO(payload)).convert('RGBA')
+        buf = io.BytesIO()
+        remove(img, session=session).save(buf, 'PNG')
+        send(buf.getvalue())
+    except Exception as e:
+        print(e, file=sys.stderr)
+        send(b'', -1)
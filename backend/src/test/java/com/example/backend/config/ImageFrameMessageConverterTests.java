@@ -0,0 +1,65 @@
+package com.example.backend.config;
+
+import com.example.backend.models.ImageMatrixResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageFrameMessageConverterTests {
+
+	private final ImageFrameMessageConverter converter = new ImageFrameMessageConverter();
+
+	@Test
+	void writesHeaderImageAndLittleEndianMatrix() throws Exception {
+		byte[] image = {1, 2, 3, 4, 5};
+		// Longer than one write chunk so the chunked matrix path is covered
+		int[] linear = new int[16 * 1024 + 7];
+		for (int i = 0; i < linear.length; i++) linear[i] = i * 0x9e3779b1;
+		ImageMatrixResponse r = new ImageMatrixResponse(image, linear, 3, 5);
+
+		MockHttpOutputMessage out = new MockHttpOutputMessage();
+		converter.write(r, ImageFrameMessageConverter.PIXEL_FRAME, out);
+		byte[] frame = out.getBodyAsBytes();
+
+		assertEquals(out.getHeaders().getContentLength(), frame.length);
+		ByteBuffer in = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals("PXF2", new String(frame, 0, 4));
+		in.position(4);
+		assertEquals(ImageFrameMessageConverter.FORMAT_PNG, in.getInt());
+		assertEquals(3, in.getInt());
+		assertEquals(5, in.getInt());
+		assertEquals(image.length, in.getInt());
+		byte[] img = new byte[image.length];
+		in.get(img);
+		assertArrayEquals(image, img);
+
+		assertEquals(linear.length, in.getInt());
+		int[] matrix = new int[linear.length];
+		in.asIntBuffer().get(matrix);
+		assertArrayEquals(linear, matrix);
+		assertEquals(frame.length, in.position() + 4 * matrix.length);
+	}
+
+	@Test
+	void writesTheJpegFormatAndAnEmptyMatrixWhenItIsLeftOut() throws Exception {
+		ImageMatrixResponse r = new ImageMatrixResponse(new byte[]{9}, new int[]{1, 2}, 1, 2);
+		r.format = "jpeg";
+		r = r.withoutLinear();
+
+		MockHttpOutputMessage out = new MockHttpOutputMessage();
+		converter.write(r, ImageFrameMessageConverter.PIXEL_FRAME, out);
+		byte[] frame = out.getBodyAsBytes();
+
+		assertEquals(out.getHeaders().getContentLength(), frame.length);
+		ByteBuffer in = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(4 + 16 + 1 + 4, frame.length);
+		assertEquals(ImageFrameMessageConverter.FORMAT_JPEG, in.getInt(4));
+		assertEquals(0, in.getInt(frame.length - 4));
+		assertArrayEquals(new byte[]{9}, Arrays.copyOfRange(frame, 20, 21));
+	}
+}
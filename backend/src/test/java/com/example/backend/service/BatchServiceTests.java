@@ -0,0 +1,147 @@
+package com.example.backend.service;
+
+import com.example.backend.models.OperationDTO;
+import com.example.backend.models.StepTiming;
+import com.example.backend.service.ai.RembgWorkerPool;
+import com.example.backend.service.basic.BrightnessService;
+import com.example.backend.service.basic.ContrastService;
+import com.example.backend.service.basic.GrayscaleService;
+import com.example.backend.service.core.BlurEngine;
+import com.example.backend.service.core.BlurMode;
+import com.example.backend.service.core.ComponentLabeler;
+import com.example.backend.service.core.Interpolation;
+import com.example.backend.service.core.MatrixTransformEngine;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelKernelProvider;
+import com.example.backend.service.core.TileScheduler;
+import com.example.backend.service.filters.BlurService;
+import com.example.backend.service.filters.SharpenService;
+import com.example.backend.service.geometric.FlipService;
+import com.example.backend.service.geometric.RotateService;
+import com.example.backend.service.geometric.ZoomService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchServiceTests {
+
+	private final TileScheduler scheduler = new TileScheduler(2, 256);
+	private final PixelKernelProvider kernels = new PixelKernelProvider(true);
+	private final MatrixTransformEngine engine = new MatrixTransformEngine(scheduler);
+	private final GrayscaleService grayscale = new GrayscaleService(scheduler, kernels);
+	private final BrightnessService brightness = new BrightnessService(scheduler, kernels);
+	private final ContrastService contrast = new ContrastService(scheduler, kernels);
+	private final RotateService rotate = new RotateService(engine, grayscale);
+	private final ZoomService zoom = new ZoomService(engine, grayscale, 1 << 20);
+	private final FlipService flip = new FlipService(engine, grayscale);
+	private final BlurService blur = new BlurService(grayscale, new BlurEngine(scheduler));
+	private final SharpenService sharpen = new SharpenService(grayscale, scheduler);
+	private final CropService crop = new CropService(new SubMatrixService(), grayscale);
+	private final BackgroundRemovalService background = new BackgroundRemovalService(
+			new RembgWorkerPool("/nonexistent/rembg-worker", 1, 0, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ZERO),
+			new ComponentLabeler(scheduler), kernels);
+	private final BatchService batch = new BatchService(grayscale, brightness, contrast, rotate, zoom, flip,
+			blur, sharpen, crop, background, engine);
+
+	private final PixelBuffer img = random(37, 29);
+
+	@AfterEach
+	void close() {
+		scheduler.destroy();
+	}
+
+	@Test
+	void batchMatchesTheSingleOperationCalls() {
+		List<OperationDTO> ops = List.of(
+				op("crop", "x", 2, "y", "3", "w", 30, "h", 24),
+				op("brightness", "level", 25),
+				op("rotate", "angle", 90),
+				op("flip/horizontal"),
+				op("zoom", "scale", "1.5", "interpolation", "bilinear"),
+				op("blur", "intensity", 2, "mode", "gaussian"),
+				op("sharpen", "intensity", 1, "grayscale", "true"),
+				op("contrast", "level", -40.0));
+
+		PixelBuffer expected = crop.process(img, 2, 3, 30, 24, false);
+		expected = brightness.process(expected, 25, false);
+		expected = rotate.process(expected, 90, false, Interpolation.NEAREST);
+		expected = flip.horizontal(expected, false);
+		expected = zoom.process(expected, 1.5, false, Interpolation.BILINEAR);
+		expected = blur.process(expected, 2, false, BlurMode.GAUSSIAN);
+		expected = sharpen.process(expected, 1, true);
+		expected = contrast.process(expected, -40, false);
+
+		List<StepTiming> timings = new ArrayList<>();
+		PixelBuffer actual = batch.run(img, ops, timings);
+		assertEquals(expected.width(), actual.width());
+		assertEquals(expected.height(), actual.height());
+		assertArrayEquals(expected.data(), actual.data());
+		assertEquals(ops.size(), timings.size());
+		// rotate was folded into the flip pass; the bilinear zoom needs its own
+		assertTrue(timings.get(2).fused);
+		assertFalse(timings.get(3).fused || timings.get(4).fused);
+	}
+
+	@Test
+	void outputLimitOnlyAppliesToRunsWithAZoom() {
+		ZoomService tiny = new ZoomService(engine, grayscale, 100);
+		BatchService limited = new BatchService(grayscale, brightness, contrast, rotate, tiny, flip,
+				blur, sharpen, crop, background, engine);
+
+		PixelBuffer rotated = limited.run(img, List.of(op("rotate", "angle", 45), op("flip/vertical")), new ArrayList<>());
+		assertArrayEquals(flip.vertical(rotate.process(img, 45, false), false).data(), rotated.data());
+		assertThrows(IllegalArgumentException.class,
+				() -> limited.run(img, List.of(op("rotate", "angle", 45), op("zoom", "scale", 1)), new ArrayList<>()));
+	}
+
+	@Test
+	void runsThatCancelOutLeaveThePixelsAlone() {
+		int[] before = img.data().clone();
+		PixelBuffer out = batch.run(img, List.of(op("rotate", "angle", 90), op("rotate", "angle", -90)), new ArrayList<>());
+		assertArrayEquals(before, out.data());
+		assertArrayEquals(before, img.data());
+	}
+
+	@Test
+	void malformedAndUnknownStepsAreRejected() {
+		for (OperationDTO bad : List.of(
+				op("warp"),
+				new OperationDTO(null, new HashMap<>()),
+				op("rotate"),
+				op("rotate", "angle", "abc"),
+				op("rotate", "angle", "NaN"),
+				op("brightness", "level", "x"),
+				op("brightness", "level", 1.5),
+				op("blur", "intensity", true),
+				op("blur", "intensity", 2, "mode", "median"),
+				op("grayscale", "grayscale", "yes"),
+				op("crop", "x", 40, "w", 5, "h", 5),
+				op("crop", "x", -1, "w", 5, "h", 5),
+				op("zoom", "scale", 0),
+				op("rotate", "angle", 90, "interpolation", "cubic-ish"))) {
+			assertThrows(IllegalArgumentException.class, () -> batch.run(img, List.of(bad), new ArrayList<>()),
+					String.valueOf(bad.getType()) + " " + bad.getParams());
+		}
+	}
+
+	private static OperationDTO op(String type, Object... params) {
+		Map<String, Object> map = new HashMap<>();
+		for (int i = 0; i < params.length; i += 2) map.put((String) params[i], params[i + 1]);
+		return new OperationDTO(type, map);
+	}
+
+	private static PixelBuffer random(int w, int h) {
+		Random rnd = new Random(9);
+		PixelBuffer img = PixelBuffer.create(w, h);
+		for (int i = 0; i < img.data().length; i++) img.data()[i] = 0xff000000 | rnd.nextInt(0x1000000);
+		return img;
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.backend.service;
+
+import com.example.backend.models.ImageHandleResponse;
+import com.example.backend.service.cache.DecodedImageCache;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.util.HashUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHandleServiceTests {
+
+	private final DecodedImageCache cache = new DecodedImageCache(1 << 20, Duration.ZERO);
+	private final ImageHandleService handles = new ImageHandleService(cache);
+
+	@Test
+	void sameBytesGiveTheSameHandleAndOneDecode() throws IOException {
+		byte[] png = png(5, 3, 0xff112233);
+		ImageHandleResponse first = handles.upload(png);
+		ImageHandleResponse second = handles.upload(png.clone());
+
+		assertEquals(HashUtil.sha256(png), first.handle);
+		assertEquals(first.handle, second.handle);
+		assertEquals(5, first.width);
+		assertEquals(3, first.height);
+		assertEquals(1, cache.stats().entries);
+		assertEquals(1, cache.stats().hits);
+
+		assertNotEquals(first.handle, handles.upload(png(5, 3, 0xff112234)).handle);
+	}
+
+	@Test
+	void handlesResolveToTheCachedRaster() throws IOException {
+		String handle = handles.upload(png(4, 2, 0xffa0b0c0)).handle;
+		PixelBuffer img = handles.resolve(null, handle);
+
+		assertSame(img, handles.resolve(null, handle));
+		assertEquals(4, img.width());
+		assertEquals(2, img.height());
+		for (int px : img.data()) assertEquals(0xffa0b0c0, px);
+		assertEquals(handle, handles.contentKey(null, handle));
+	}
+
+	@Test
+	void unknownAndMalformedHandlesAreNotFound() throws IOException {
+		handles.upload(png(4, 2, 0xffa0b0c0));
+		for (String handle : new String[] {HashUtil.sha256(new byte[] {1}), "not-a-handle", "../../etc/passwd"}) {
+			assertEquals(404, status(() -> handles.resolve(null, handle)), handle);
+		}
+		for (String handle : new String[] {null, "", "  "}) {
+			assertEquals(400, status(() -> handles.resolve(null, handle)));
+			assertEquals(400, status(() -> handles.contentKey(null, handle)));
+		}
+	}
+
+	@Test
+	void evictedAndIdleHandlesAreNotFound() throws Exception {
+		// Room for one 8x8 raster only
+		ImageHandleService small = new ImageHandleService(new DecodedImageCache(4 * 64, Duration.ZERO));
+		String a = small.upload(png(8, 8, 0xff000001)).handle;
+		String b = small.upload(png(8, 8, 0xff000002)).handle;
+		assertEquals(404, status(() -> small.resolve(null, a)));
+		assertNotNull(small.resolve(null, b));
+
+		ImageHandleService idle = new ImageHandleService(new DecodedImageCache(1 << 20, Duration.ofMillis(50)));
+		String c = idle.upload(png(2, 2, 0xff000003)).handle;
+		Thread.sleep(120);
+		assertEquals(404, status(() -> idle.resolve(null, c)));
+	}
+
+	@Test
+	void uploadedBytesTakePrecedenceOverAHandle() throws IOException {
+		String handle = handles.upload(png(4, 2, 0xffa0b0c0)).handle;
+		byte[] other = png(3, 3, 0xff0000ff);
+
+		PixelBuffer img = handles.resolve(other, handle);
+		assertEquals(3, img.width());
+		for (int px : img.data()) assertEquals(0xff0000ff, px);
+		assertEquals(HashUtil.sha256(other), handles.contentKey(other, handle));
+		// Also when the handle is unknown
+		assertEquals(3, handles.resolve(other, "not-a-handle").width());
+	}
+
+	private interface Call {
+		void run() throws Exception;
+	}
+
+	private static int status(Call call) {
+		return assertThrows(ResponseStatusException.class, call::run).getStatusCode().value();
+	}
+
+	private static byte[] png(int w, int h, int argb) throws IOException {
+		BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) img.setRGB(x, y, argb);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", out);
+		return out.toByteArray();
+	}
+}
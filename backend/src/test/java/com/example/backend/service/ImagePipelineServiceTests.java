@@ -0,0 +1,238 @@
+package com.example.backend.service;
+
+import com.example.backend.service.basic.BrightnessService;
+import com.example.backend.service.basic.ContrastService;
+import com.example.backend.service.basic.GrayscaleService;
+import com.example.backend.service.cache.LayerImageCache;
+import com.example.backend.service.cache.LayerStackCache;
+import com.example.backend.service.core.BlurEngine;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.PixelKernelProvider;
+import com.example.backend.service.core.TileScheduler;
+import com.example.backend.service.filters.BlurService;
+import com.example.backend.service.filters.SharpenService;
+import com.example.backend.service.util.PngEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePipelineServiceTests {
+
+	private TileScheduler scheduler = new TileScheduler(2, 64);
+	private LayerImageCache layerImages = new LayerImageCache(1 << 24, Duration.ZERO);
+	private LayerStackCache stack = new LayerStackCache(1 << 24, Duration.ZERO, 3);
+	private ImagePipelineService pipeline = pipeline(layerImages, stack);
+	// Separate caches, so reference runs never touch the ones under test
+	private ImagePipelineService cold = pipeline(new LayerImageCache(1 << 24, Duration.ZERO),
+			new LayerStackCache(1 << 24, Duration.ZERO, 0));
+
+	private final Random rnd = new Random(7);
+	private final PixelBuffer base = random(16, 12, true);
+
+	@AfterEach
+	void close() {
+		scheduler.destroy();
+	}
+
+	@Test
+	void opacityChangeReusesTheDecodedImageLayer() throws Exception {
+		String image = dataUrl(random(8, 6, false));
+		PixelBuffer first = pipeline.compositeLayers(base, "[" + imageLayer(image, 0.5f) + "]");
+		assertEquals(1, layerImages.stats().misses);
+		assertEquals(1, layerImages.stats().entries);
+
+		PixelBuffer second = pipeline.compositeLayers(base, "[" + imageLayer(image, 0.8f) + "]");
+		assertEquals(1, layerImages.stats().hits);
+		assertEquals(1, layerImages.stats().misses);
+		assertFalse(Arrays.equals(first.data(), second.data()));
+	}
+
+	@Test
+	void duplicateImageLayersShareOneDecode() throws Exception {
+		String image = dataUrl(random(8, 6, false));
+		pipeline.compositeLayers(base, "[" + imageLayer(image, 0.5f) + "," + colorLayer("#102030", 0.3f) + ","
+				+ imageLayer(image, 0.25f) + "]");
+		assertEquals(1, layerImages.stats().misses);
+		assertEquals(1, layerImages.stats().entries);
+	}
+
+	@Test
+	void failingLayerCancelsPendingDecodesAndPropagatesItsOwnException() throws Exception {
+		// One pool thread, held busy so the image decode below stays queued
+		scheduler.destroy();
+		scheduler = new TileScheduler(1, 64);
+		pipeline = pipeline(layerImages, stack);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean release = new AtomicBoolean();
+		Future<Object> blocker = scheduler.submit(() -> {
+			started.countDown();
+			while (!release.get()) Thread.sleep(5);
+			return null;
+		});
+		started.await();
+
+		String image = dataUrl(random(8, 6, false));
+		String json = "[" + colorLayer("#zzzzzz", 1f) + "," + imageLayer(image, 1f) + "]";
+		assertThrows(NumberFormatException.class, () -> pipeline.compositeLayers(base, json));
+
+		release.set(true);
+		blocker.get();
+		scheduler.submit(() -> null).get();
+		assertEquals(0, layerImages.stats().entries, "cancelled decode must not run");
+
+		// A decode failure surfaces as the decoder's own exception, not an ExecutionException
+		String broken = "data:image/png;base64," + Base64.getEncoder().encodeToString(new byte[]{1, 2, 3});
+		IOException e = assertThrows(IOException.class,
+				() -> pipeline.compositeLayers(base, "[" + imageLayer(broken, 1f) + "," + imageLayer(image, 1f) + "]"));
+		assertEquals("Could not decode image data.", e.getMessage());
+	}
+
+	@Test
+	void topLayerEditResumesFromTheCachedPrefix() throws Exception {
+		String a = dataUrl(random(8, 6, false)), b = dataUrl(random(16, 12, false));
+		AtomicInteger baseLoads = new AtomicInteger();
+		String before = "[" + imageLayer(a, 0.6f) + "," + colorLayer("#336699", 0.3f) + "," + imageLayer(b, 0.5f) + "]";
+		String after = "[" + imageLayer(a, 0.6f) + "," + colorLayer("#336699", 0.3f) + "," + imageLayer(b, 0.9f) + "]";
+
+		PixelBuffer first = composite(before, baseLoads);
+		assertArrayEquals(cold.compositeLayers(base, before).data(), first.data());
+		long decodes = layerImages.stats().misses;
+
+		PixelBuffer second = composite(after, baseLoads);
+		assertArrayEquals(cold.compositeLayers(base, after).data(), second.data());
+		assertEquals(1, baseLoads.get(), "second request resumes above the base");
+		assertEquals(decodes, layerImages.stats().misses, "no image layer is decoded again");
+	}
+
+	@Test
+	void middleLayerEditResumesFromTheNearestSpacedCheckpoint() throws Exception {
+		// 12 distinct image layers, 3 checkpoints: the top three plus every fourth layer
+		String[] images = new String[12];
+		for (int i = 0; i < images.length; i++) images[i] = dataUrl(random(8, 6, false));
+		AtomicInteger baseLoads = new AtomicInteger();
+		composite(stack(images, -1), baseLoads);
+		assertEquals(12, layerImages.stats().misses);
+		assertEquals(5, stack.stats().entries);
+
+		// Each re-applied image layer looks its decode up again, so hits count them
+		int[][] editThenReapplied = {{6, 8}, {8, 4}, {3, 12}, {2, 12}, {10, 2}};
+		for (int[] c : editThenReapplied) {
+			String json = stack(images, c[0]);
+			long hits = layerImages.stats().hits;
+			assertArrayEquals(cold.compositeLayers(base, json).data(), composite(json, baseLoads).data());
+			assertEquals(c[1], layerImages.stats().hits - hits, "edit at layer " + c[0]);
+		}
+		assertEquals(3, baseLoads.get(), "only the edits below the first spaced checkpoint reload the base");
+	}
+
+	@Test
+	void fusedPointFiltersAreCheckpointedOnlyOnceApplied() throws Exception {
+		String a = dataUrl(random(8, 6, false));
+		AtomicInteger baseLoads = new AtomicInteger();
+		String before = "[" + imageLayer(a, 0.7f) + "," + filterLayer("brightness", 20) + "," + filterLayer("contrast", 30) + "]";
+		String after = "[" + imageLayer(a, 0.7f) + "," + filterLayer("brightness", 20) + "," + filterLayer("contrast", 50) + "]";
+
+		composite(before, baseLoads);
+		// The canvas between the two fused filters never existed, so this resumes below both
+		PixelBuffer resumed = composite(after, baseLoads);
+		assertArrayEquals(cold.compositeLayers(base, after).data(), resumed.data());
+		assertEquals(1, baseLoads.get());
+
+		// Unchanged stack: served from the checkpoint taken after the fused run
+		assertArrayEquals(resumed.data(), composite(after, baseLoads).data());
+		assertEquals(1, baseLoads.get());
+	}
+
+	@Test
+	void hiddenLayersLeaveTheOutputAndTheKeysAlone() throws Exception {
+		String a = dataUrl(random(8, 6, false));
+		AtomicInteger baseLoads = new AtomicInteger();
+		String without = "[" + imageLayer(a, 0.6f) + "," + colorLayer("#336699", 0.3f) + "]";
+		String hidden = "[" + imageLayer(a, 0.6f) + "," + hidden(colorLayer("#ff0000", 1f)) + "," + colorLayer("#336699", 0.3f) + "]";
+		String edited = "[" + imageLayer(a, 0.6f) + "," + hidden(colorLayer("#00ff00", 0.5f)) + "," + colorLayer("#336699", 0.3f) + "]";
+
+		PixelBuffer expected = cold.compositeLayers(base, without);
+		assertArrayEquals(expected.data(), composite(hidden, baseLoads).data());
+		// Editing a hidden layer keeps every prefix key, so the whole stack comes from the cache
+		long hits = stack.stats().hits;
+		assertArrayEquals(expected.data(), composite(edited, baseLoads).data());
+		assertArrayEquals(expected.data(), composite(without, baseLoads).data());
+		assertEquals(1, baseLoads.get());
+		assertEquals(hits + 2, stack.stats().hits);
+	}
+
+	@Test
+	void canvasesLargerThanTheBudgetAreNotCheckpointed() throws Exception {
+		stack = new LayerStackCache(4L * 16 * 12 - 1, Duration.ZERO, 3);
+		pipeline = pipeline(layerImages, stack);
+		composite("[" + colorLayer("#336699", 0.3f) + "]", new AtomicInteger());
+		assertEquals(0, stack.stats().entries);
+	}
+
+	private PixelBuffer composite(String json, AtomicInteger baseLoads) throws Exception {
+		return pipeline.compositeLayers("base", () -> {
+			baseLoads.incrementAndGet();
+			return base;
+		}, json, Map.of());
+	}
+
+	private ImagePipelineService pipeline(LayerImageCache layerImages, LayerStackCache stack) {
+		PixelKernelProvider kernels = new PixelKernelProvider(true);
+		GrayscaleService grayscale = new GrayscaleService(scheduler, kernels);
+		return new ImagePipelineService(grayscale,
+				new BrightnessService(scheduler, kernels),
+				new ContrastService(scheduler, kernels),
+				new BlurService(grayscale, new BlurEngine(scheduler)),
+				new SharpenService(grayscale, scheduler),
+				scheduler, kernels, layerImages, stack);
+	}
+
+	private static String imageLayer(String dataUrl, float opacity) {
+		return "{\"type\":\"image\",\"imageData\":\"" + dataUrl + "\",\"opacity\":" + opacity + "}";
+	}
+
+	// Image layers at opacity 0.5, except `edited` at 0.75
+	private static String stack(String[] images, int edited) {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < images.length; i++) {
+			json.append(i == 0 ? "" : ",").append(imageLayer(images[i], i == edited ? 0.75f : 0.5f));
+		}
+		return json.append("]").toString();
+	}
+
+	private static String filterLayer(String filter, int level) {
+		return "{\"type\":\"filter\",\"filterType\":\"" + filter + "\",\"params\":{\"level\":" + level + "}}";
+	}
+
+	private static String hidden(String layer) {
+		return layer.replace("{", "{\"visible\":false,");
+	}
+
+	private static String colorLayer(String color, float opacity) {
+		return "{\"type\":\"color\",\"color\":\"" + color + "\",\"opacity\":" + opacity + "}";
+	}
+
+	private static String dataUrl(PixelBuffer img) throws IOException {
+		return "data:image/png;base64," + Base64.getEncoder().encodeToString(PngEncoder.encode(img, 6, PngEncoder.Filter.ADAPTIVE));
+	}
+
+	private PixelBuffer random(int w, int h, boolean opaque) {
+		PixelBuffer img = PixelBuffer.create(w, h);
+		for (int i = 0; i < img.data().length; i++) {
+			img.data()[i] = opaque ? 0xff000000 | rnd.nextInt(0x1000000) : rnd.nextInt();
+		}
+		return img;
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.backend.service;
+
+import com.example.backend.service.util.TextSlice;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayerJsonParserTests {
+
+	@Test
+	void parsesLayersAndKeepsImageDataAsAView() {
+		String json = " [ {\"type\":\"color\",\"color\":\"#ff00aa\",\"opacity\":0.5,\"visible\":false},\n"
+				+ "{\"type\":\"filter\",\"filterType\":\"blur\",\"params\":{\"intensity\":4,\"mode\":\"box, fast\",\"x\":{\"a\":[1,2]}}},"
+				+ "{\"type\":\"image\",\"imageData\":\"data:image/png;base64,AAAA{}[]\",\"unknown\":[{\"k\":\"]\"}],\"opacity\":\"0.25\"},"
+				+ "{\"type\":\"gradient\",\"gradientAngle\":45,\"gradientStart\":\"#000000\",\"imageRef\":null},"
+				+ "{\"type\":\"image\",\"imageRef\":\"layer\\u0031\",\"imageData\":\"a\\/b\"} ] ";
+		List<LayerData> layers = LayerJsonParser.parse(json);
+		assertEquals(5, layers.size());
+
+		assertEquals("#ff00aa", layers.get(0).color);
+		assertEquals(0.5f, layers.get(0).opacity);
+		assertFalse(layers.get(0).visible);
+
+		assertEquals(4, layers.get(1).getIntParam("intensity", 0));
+		assertEquals("box, fast", layers.get(1).params.get("mode"));
+		assertEquals("{\"a\":[1,2]}", layers.get(1).params.get("x"));
+
+		assertInstanceOf(TextSlice.class, layers.get(2).imageData);
+		assertEquals("data:image/png;base64,AAAA{}[]", layers.get(2).imageData.toString());
+		assertEquals(0.25f, layers.get(2).opacity);
+
+		assertEquals(45, layers.get(3).gradientAngle);
+		assertNull(layers.get(3).imageRef);
+
+		// Escaped strings fall back to a decoded copy
+		assertEquals("layer1", layers.get(4).imageRef);
+		assertEquals("a/b", layers.get(4).imageData.toString());
+	}
+
+	@Test
+	void acceptsSingleObjectAndEmptyArray() {
+		assertEquals("color", LayerJsonParser.parse("{\"type\":\"color\"}").get(0).type);
+		assertTrue(LayerJsonParser.parse("[]").isEmpty());
+	}
+
+	@Test
+	void rejectsMalformedInput() {
+		for (String bad : new String[]{"", "[", "[{\"type\":\"color\"", "[{\"type\" \"color\"}]",
+				"[{\"opacity\":\"x\"}]", "[{}] x", "[{\"type\":\"col"}) {
+			assertThrows(IllegalArgumentException.class, () -> LayerJsonParser.parse(bad), bad);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.backend.service;
+
+import com.example.backend.models.ImageMatrixResponse;
+import com.example.backend.models.MatrixWindowResponse;
+import com.example.backend.models.ResponseOptions;
+import com.example.backend.service.cache.OperationKey;
+import com.example.backend.service.cache.ResultCache;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.util.ImageUtil;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubMatrixServiceTests {
+
+	private static final int W = 9, H = 7;
+
+	private final SubMatrixService service = new SubMatrixService();
+
+	@Test
+	void windowOfACachedResultIsTheSameSliceOfItsFullMatrix() throws Exception {
+		PixelBuffer img = random();
+		ResultCache cache = new ResultCache(1 << 20, "");
+		ImageMatrixResponse full = cache.get("img", OperationKey.of("grayscale"), () -> ImageUtil.toResponse(img));
+		int[] linear = cache.lookup(full.resultId).linear;
+
+		// Every centre, including the corners, where the window is clipped on two sides
+		for (int radius : new int[] {0, 1, 2, 5, 50}) {
+			for (int cy = 0; cy < H; cy++) {
+				for (int cx = 0; cx < W; cx++) {
+					MatrixWindowResponse win = service.window(linear, W, H, cx, cy, radius);
+					int x0 = Math.max(0, cx - radius), y0 = Math.max(0, cy - radius);
+					int x1 = Math.min(W, cx + radius + 1), y1 = Math.min(H, cy + radius + 1);
+					String at = cx + "," + cy + " r" + radius;
+					assertEquals(x0, win.x, at);
+					assertEquals(y0, win.y, at);
+					assertEquals(x1 - x0, win.width, at);
+					assertEquals(y1 - y0, win.height, at);
+					assertArrayEquals(slice(img.data(), x0, y0, x1, y1), win.values, at);
+					assertEquals(W, win.imageWidth);
+					assertEquals(H, win.imageHeight);
+				}
+			}
+		}
+	}
+
+	@Test
+	void windowsCentredOutsideTheImageAreRejected() {
+		int[] linear = random().data();
+		for (int[] bad : new int[][] {{-1, 0, 2}, {0, -1, 2}, {W, 3, 2}, {3, H, 2}, {W + 10, H + 10, 50}, {3, 3, -1}}) {
+			assertThrows(IllegalArgumentException.class, () -> service.window(linear, W, H, bad[0], bad[1], bad[2]),
+					Arrays.toString(bad));
+		}
+	}
+
+	@Test
+	void fullMatrixIsLeftOutUnlessRequested() throws IOException {
+		ImageMatrixResponse res = ImageUtil.toResponse(random());
+		res.resultId = "id";
+		ImageMatrixResponse slim = res.withoutLinear();
+
+		assertFalse(new ResponseOptions().isMatrix());
+		assertNull(slim.linear);
+		assertSame(res.image, slim.image);
+		assertEquals(res.resultId, slim.resultId);
+		assertEquals(res.format, slim.format);
+		assertEquals(res.width, slim.width);
+		assertEquals(res.height, slim.height);
+	}
+
+	// Row-major copy of [x0, x1) x [y0, y1), done pixel by pixel
+	private static int[] slice(int[] px, int x0, int y0, int x1, int y1) {
+		int[] out = new int[(x1 - x0) * (y1 - y0)];
+		int i = 0;
+		for (int y = y0; y < y1; y++) {
+			for (int x = x0; x < x1; x++) out[i++] = px[y * W + x];
+		}
+		return out;
+	}
+
+	private static PixelBuffer random() {
+		PixelBuffer img = PixelBuffer.create(W, H);
+		Random rnd = new Random(4);
+		for (int i = 0; i < img.data().length; i++) img.data()[i] = rnd.nextInt();
+		return img;
+	}
+}
@@ -0,0 +1,99 @@
+package com.example.backend.service;
+
+import com.example.backend.service.cache.DecodedImageCache;
+import com.example.backend.service.core.PixelBuffer;
+import com.example.backend.service.core.TileScheduler;
+import com.example.backend.service.util.ImageUtil;
+import com.example.backend.service.util.PngEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TilePyramidServiceTests {
+
+	private final TileScheduler scheduler = new TileScheduler(2, 4);
+	private final ImageHandleService handles = new ImageHandleService(new DecodedImageCache(1 << 24, Duration.ZERO));
+	private final TilePyramidService pyramid = new TilePyramidService(handles, scheduler, 2, 1 << 24);
+
+	@AfterEach
+	void close() {
+		scheduler.destroy();
+	}
+
+	@Test
+	void downsampleAveragesOddEdgesAndRoundsHalfUp() throws Exception {
+		String handle = upload(3, 3,
+				argb(255, 0, 10, 0), argb(255, 1, 10, 1), argb(255, 7, 0, 0),
+				argb(255, 1, 10, 0), argb(255, 1, 11, 0), argb(255, 8, 0, 0),
+				argb(255, 4, 0, 0), argb(255, 5, 0, 0), argb(128, 9, 3, 2));
+
+		// 3x3 -> 2x2: a full 2x2 block, a 1x2 right edge, a 2x1 bottom edge and the 1x1 corner
+		PixelBuffer level1 = tile(handle, 1, 0, 0);
+		assertEquals(2, level1.width());
+		assertEquals(2, level1.height());
+		assertArrayEquals(new int[]{
+				argb(255, 1, 10, 0), argb(255, 8, 0, 0),
+				argb(255, 5, 0, 0), argb(128, 9, 3, 2)
+		}, level1.data());
+	}
+
+	@Test
+	void levelsStopAtTheFirstLevelThatFitsOneTile() throws Exception {
+		assertEquals(1, pyramid.info(upload(1, 1, 0)).levels);
+		assertEquals(1, pyramid.info(upload(2, 2, new int[4])).levels);
+		assertEquals(2, pyramid.info(upload(3, 3, new int[9])).levels);
+		// 5x1 -> 3x1 -> 2x1
+		assertEquals(3, pyramid.info(upload(5, 1, new int[5])).levels);
+		assertEquals(3, pyramid.info(upload(1, 5, new int[5])).levels);
+	}
+
+	@Test
+	void edgeTilesAreCroppedToTheImage() throws Exception {
+		int[] px = new int[5 * 3];
+		for (int i = 0; i < px.length; i++) px[i] = argb(255, i, 2 * i, 3 * i);
+		String handle = upload(5, 3, px);
+
+		assertArrayEquals(new int[]{px[2], px[3], px[7], px[8]}, tile(handle, 0, 1, 0).data());
+		PixelBuffer right = tile(handle, 0, 2, 0);
+		assertEquals(1, right.width());
+		assertArrayEquals(new int[]{px[4], px[9]}, right.data());
+		PixelBuffer corner = tile(handle, 0, 2, 1);
+		assertEquals(1, corner.width());
+		assertEquals(1, corner.height());
+		assertArrayEquals(new int[]{px[14]}, corner.data());
+	}
+
+	@Test
+	void outOfRangeLevelsAndTilesAreNotFound() throws Exception {
+		String handle = upload(5, 3, new int[15]); // levels 0..2
+		for (int[] t : new int[][]{{3, 0, 0}, {-1, 0, 0}, {0, 3, 0}, {0, 0, 2}, {0, -1, 0}, {2, 1, 0}}) {
+			ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> pyramid.tile(handle, t[0], t[1], t[2]));
+			assertEquals(404, e.getStatusCode().value());
+		}
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> pyramid.tile("0".repeat(64), 0, 0, 0));
+		assertEquals(404, e.getStatusCode().value());
+	}
+
+	@Test
+	void tileSizeMustBePositive() {
+		assertThrows(IllegalArgumentException.class, () -> new TilePyramidService(handles, scheduler, 0, 1 << 24));
+	}
+
+	private String upload(int w, int h, int... px) throws Exception {
+		PixelBuffer img = PixelBuffer.create(w, h);
+		System.arraycopy(px, 0, img.data(), 0, px.length);
+		return handles.upload(PngEncoder.encode(img, 6, PngEncoder.Filter.ADAPTIVE)).handle;
+	}
+
+	private PixelBuffer tile(String handle, int level, int x, int y) throws Exception {
+		return ImageUtil.decodeBuffer(pyramid.tile(handle, level, x, y));
+	}
+
+	private static int argb(int a, int r, int g, int b) {
+		return a << 24 | r << 16 | g << 8 | b;
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.backend.service.ai;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RembgWorkerPoolTests {
+
+	private RembgWorkerPool pool;
+
+	@AfterEach
+	void close() {
+		if (pool != null) pool.destroy();
+	}
+
+	@Test
+	void concurrentRequestsRoundTripThroughWorkers() throws Exception {
+		pool = stubPool(2, Duration.ofSeconds(20));
+		awaitAvailable(pool);
+
+		ExecutorService clients = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<byte[]>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				byte[] payload = ("image-" + i).getBytes(StandardCharsets.US_ASCII);
+				results.add(clients.submit(() -> pool.process(payload)));
+			}
+			for (int i = 0; i < 8; i++) {
+				assertEquals("image-" + i, new String(results.get(i).get(), StandardCharsets.US_ASCII));
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	@Test
+	void crashedAndTimedOutWorkersAreReplaced() throws Exception {
+		pool = stubPool(1, Duration.ofSeconds(3));
+		awaitAvailable(pool);
+
+		assertThrows(IOException.class, () -> pool.process(bytes("crash")));
+		assertEquals("after-crash", new String(pool.process(bytes("after-crash")), StandardCharsets.US_ASCII));
+
+		assertThrows(IOException.class, () -> pool.process(bytes("hang")));
+		assertEquals("after-hang", new String(pool.process(bytes("after-hang")), StandardCharsets.US_ASCII));
+
+		// A per-image error keeps the worker
+		assertThrows(IOException.class, () -> pool.process(bytes("fail")));
+		assertEquals("after-fail", new String(pool.process(bytes("after-fail")), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void requestsStillTimeOutWhileAHealthCheckAndARestartHang(@TempDir Path tmp) throws Exception {
+		// The space checks that quoted command words survive splitting
+		Path control = Files.createDirectories(tmp.resolve("control dir"));
+		Files.createFile(control.resolve("hang-ping"));
+		pool = stubPool(2, Duration.ofSeconds(2), Duration.ofSeconds(60), "\"" + control + "\"");
+		awaitAvailable(pool);
+
+		// Every worker started from now on hangs while loading its model
+		Files.createFile(control.resolve("hang-startup"));
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!Files.exists(control.resolve("pinged"))) {
+			assertTrue(System.currentTimeMillis() < deadline, "health check never pinged the worker");
+			Thread.sleep(50);
+		}
+
+		// The only worker is stuck in its ping, so this request starts one that takes the whole
+		// startup timeout to fail; the request itself gives up at its own deadline
+		assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> assertThrows(TimeoutException.class, () -> pool.process(bytes("x"))));
+	}
+
+	@Test
+	void availabilityIsProbedInTheBackgroundAndRetriedAfterASlowStart(@TempDir Path tmp) throws Exception {
+		Files.createFile(tmp.resolve("hang-startup"));
+		pool = stubPool(1, Duration.ofSeconds(2), Duration.ofSeconds(1), tmp.toString());
+
+		// The first worker is still loading: "not yet", without waiting for it
+		assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+			assertFalse(pool.isAvailable());
+			assertThrows(IllegalStateException.class, () -> pool.process(bytes("x")));
+		});
+
+		// Its start times out, which is not cached: a later probe finds a working worker
+		Files.delete(tmp.resolve("hang-startup"));
+		awaitAvailable(pool);
+		assertEquals("x", new String(pool.process(bytes("x")), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void commandWordsCanBeQuoted() {
+		assertEquals(List.of("python", "-u", "C:\\Program Files\\worker.py", "it's"),
+				RembgWorkerPool.splitCommand("  python  -u \"C:\\Program Files\\worker.py\" \"it's\" "));
+		assertEquals(List.of("a", "", "b c"), RembgWorkerPool.splitCommand("a '' 'b 'c"));
+		assertThrows(IllegalArgumentException.class, () -> RembgWorkerPool.splitCommand("python \"worker.py"));
+	}
+
+	@Test
+	void missingWorkerIsReportedUnavailable() {
+		pool = new RembgWorkerPool("/nonexistent/rembg-worker", 1, 0,
+				Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ZERO);
+		assertFalse(pool.isAvailable());
+		assertThrows(IllegalStateException.class, () -> pool.process(bytes("x")));
+	}
+
+	private static void awaitAvailable(RembgWorkerPool pool) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 20_000;
+		while (!pool.isAvailable()) {
+			assertTrue(System.currentTimeMillis() < deadline, "no worker became ready");
+			Thread.sleep(20);
+		}
+	}
+
+	private static RembgWorkerPool stubPool(int workers, Duration timeout) throws Exception {
+		return stubPool(workers, timeout, Duration.ofSeconds(20), "");
+	}
+
+	private static RembgWorkerPool stubPool(int workers, Duration timeout, Duration startupTimeout, String args) throws Exception {
+		String java = ProcessHandle.current().info().command().orElse("java");
+		String classes = Paths.get(StubRembgWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		return new RembgWorkerPool("\"" + java + "\" -cp \"" + classes + "\" " + StubRembgWorker.class.getName() + " " + args,
+				workers, 4, timeout, startupTimeout, Duration.ofSeconds(1));
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.backend.service.ai;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Stand-in for rembg_worker.py: speaks the same frame protocol and echoes each payload.
+ * The payloads "crash", "hang" and "fail" exit, stall and report an error respectively.
+ * With a control directory as the argument, the files "hang-startup" and "hang-ping" in it
+ * make the worker stall before reporting ready or on a health-check ping; it creates
+ * "pinged" when it starts stalling on a ping.
+ */
+public class StubRembgWorker {
+
+	public static void main(String[] args) throws Exception {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+		Path control = (args.length > 0) ? Paths.get(args[0]) : null;
+		if (control != null && Files.exists(control.resolve("hang-startup"))) Thread.sleep(Long.MAX_VALUE);
+		out.writeInt(0);
+		out.flush();
+
+		while (true) {
+			int n;
+			try {
+				n = in.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			byte[] payload = new byte[n];
+			in.readFully(payload);
+			if (n == 0 && control != null && Files.exists(control.resolve("hang-ping"))) {
+				Files.createFile(control.resolve("pinged"));
+				Thread.sleep(Long.MAX_VALUE);
+			}
+
+			switch (new String(payload, StandardCharsets.US_ASCII)) {
+				case "crash": System.exit(3);
+				case "hang": Thread.sleep(Long.MAX_VALUE);
+				case "fail": out.writeInt(-1); break;
+				default:
+					out.writeInt(n);
+					out.write(payload);
+			}
+			out.flush();
+		}
+	}
+}
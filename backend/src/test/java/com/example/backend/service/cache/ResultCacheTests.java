@@ -0,0 +1,152 @@
+package com.example.backend.service.cache;
+
+import com.example.backend.models.CacheStats;
+import com.example.backend.models.ImageMatrixResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ResultCacheTests {
+
+	// 10 image bytes + 4 * 5 matrix ints
+	private static final long WEIGHT = 30;
+
+	@TempDir
+	Path dir;
+
+	private final AtomicInteger computed = new AtomicInteger();
+
+	@Test
+	void heapEvictsLeastRecentlyUsedBeyondTheByteBudget() throws Exception {
+		ResultCache cache = new ResultCache(2 * WEIGHT, "");
+		cache.get("a", op(1), compute(1));
+		cache.get("b", op(1), compute(2));
+		cache.get("a", op(1), compute(1));   // touch a, so b is the eldest
+		cache.get("c", op(1), compute(3));
+
+		CacheStats stats = cache.stats();
+		assertEquals(1, stats.evictions);
+		assertEquals(2, stats.entries);
+		assertEquals(2 * WEIGHT, stats.bytes);
+
+		assertEquals(3, computed.get());
+		cache.get("a", op(1), compute(1));
+		assertEquals(3, computed.get());
+		cache.get("b", op(1), compute(2));
+		assertEquals(4, computed.get());
+	}
+
+	@Test
+	void heapEntriesExpireAfterIdling() throws Exception {
+		LruCache<String, ImageMatrixResponse> heap = new LruCache<>(1 << 20, 50, r -> r.image.length);
+		heap.put("a", response(1));
+		assertNotNull(heap.get("a"));
+		Thread.sleep(120);
+		assertNull(heap.get("a"));
+		assertEquals(1, heap.stats().evictions);
+		assertEquals(0, heap.stats().bytes);
+	}
+
+	@Test
+	void diskTierIsWrittenWholeAndReadBackAfterARestart() throws Exception {
+		ResultCache first = new ResultCache(1 << 20, dir.toString());
+		ImageMatrixResponse stored = first.get("img", op(7), compute(7));
+
+		// Only the published file is left: the temp file was moved, not copied
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(dir)) {
+			files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		assertEquals(1, files.size());
+		Path file = files.get(0);
+		assertEquals(64, file.getFileName().toString().length());
+		assertEquals(file.getFileName().toString().substring(0, 2), file.getParent().getFileName().toString());
+
+		ResultCache restarted = new ResultCache(1 << 20, dir.toString());
+		ImageMatrixResponse read = restarted.get("img", op(7), failing());
+		assertNotSame(stored, read);
+		assertArrayEquals(stored.image, read.image);
+		assertArrayEquals(stored.linear, read.linear);
+		assertEquals(stored.width, read.width);
+		assertEquals(stored.height, read.height);
+		assertEquals(1, computed.get());
+	}
+
+	@Test
+	void diskHitsArePromotedIntoTheHeap() throws Exception {
+		new ResultCache(1 << 20, dir.toString()).get("img", op(7), compute(7));
+
+		ResultCache restarted = new ResultCache(1 << 20, dir.toString());
+		ImageMatrixResponse fromDisk = restarted.get("img", op(7), failing());
+		assertEquals(1, restarted.stats().entries);
+		assertEquals(WEIGHT, restarted.stats().bytes);
+
+		// Second read is a heap hit: the same instance, even with the file gone
+		try (Stream<Path> walk = Files.walk(dir)) {
+			for (Path p : walk.filter(Files::isRegularFile).collect(Collectors.toList())) Files.delete(p);
+		}
+		assertSame(fromDisk, restarted.get("img", op(7), failing()));
+		assertEquals(1, restarted.stats().hits);
+	}
+
+	@Test
+	void onlyHexDigestsAreLookedUpOnDisk() throws Exception {
+		String id = new ResultCache(1 << 20, dir.toString()).get("img", op(7), compute(7)).resultId;
+		ResultCache restarted = new ResultCache(1 << 20, dir.toString());
+
+		for (String bad : new String[] {id.toUpperCase(), "../" + id.substring(3), id.substring(0, 2) + "/" + id, id + " ", ""}) {
+			assertNull(restarted.lookup(bad), bad);
+		}
+		assertEquals(0, restarted.stats().entries);
+		assertArrayEquals(response(7).linear, restarted.lookup(id).linear);
+	}
+
+	@Test
+	void corruptDiskEntriesAreRecomputed() throws Exception {
+		new ResultCache(1 << 20, dir.toString()).get("img", op(7), compute(7));
+		try (Stream<Path> walk = Files.walk(dir)) {
+			for (Path p : walk.filter(Files::isRegularFile).collect(Collectors.toList())) Files.write(p, new byte[] {1, 2, 3});
+		}
+
+		ResultCache restarted = new ResultCache(1 << 20, dir.toString());
+		assertArrayEquals(response(7).linear, restarted.get("img", op(7), compute(7)).linear);
+		assertEquals(2, computed.get());
+	}
+
+	private static OperationKey op(int level) {
+		return OperationKey.of("brightness").param("level", level);
+	}
+
+	private Callable<ImageMatrixResponse> compute(int seed) {
+		return () -> {
+			computed.incrementAndGet();
+			return response(seed);
+		};
+	}
+
+	private static Callable<ImageMatrixResponse> failing() {
+		return () -> {
+			throw new AssertionError("should have been cached");
+		};
+	}
+
+	private static ImageMatrixResponse response(int seed) {
+		byte[] image = new byte[10];
+		for (int i = 0; i < image.length; i++) image[i] = (byte) (seed + i);
+		return new ImageMatrixResponse(image, new int[] {seed, -seed, 0, Integer.MAX_VALUE, Integer.MIN_VALUE}, 5, 1);
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BlurEngineTests {
+
+	private final TileScheduler scheduler = new TileScheduler(4, 64);
+	private final BlurEngine engine = new BlurEngine(scheduler);
+
+	@AfterEach
+	void shutDown() {
+		scheduler.destroy();
+	}
+
+	@Test
+	void boxMatchesNeighbourhoodConvolution() {
+		PixelBuffer src = randomImage(37, 23, 1);
+		for (int r : new int[] {1, 2, 5, 30}) {
+			PixelBuffer out = PixelBuffer.create(src.width(), src.height());
+			engine.box(src, out, r);
+			assertArrayEquals(naiveBox(src, r), out.data(), "radius " + r);
+		}
+	}
+
+	@Test
+	void modeNamesAreCaseInsensitiveAndUnknownOnesRejected() {
+		assertEquals(BlurMode.BOX, BlurMode.parse(null));
+		assertEquals(BlurMode.BOX, BlurMode.parse(" Box "));
+		assertEquals(BlurMode.GAUSSIAN, BlurMode.parse("GAUSSIAN"));
+		assertThrows(IllegalArgumentException.class, () -> BlurMode.parse("median"));
+	}
+
+	private static PixelBuffer randomImage(int w, int h, long seed) {
+		PixelBuffer buf = PixelBuffer.create(w, h);
+		Random rnd = new Random(seed);
+		for (int i = 0; i < buf.data().length; i++) {
+			buf.data()[i] = rnd.nextInt();
+		}
+		return buf;
+	}
+
+	// The original BlurService loop, kept as the reference
+	private static int[] naiveBox(PixelBuffer img, int off) {
+		int w = img.width(), h = img.height();
+		int[] out = new int[w * h];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int sr = 0, sg = 0, sb = 0, count = 0;
+				for (int ky = -off; ky <= off; ky++) {
+					for (int kx = -off; kx <= off; kx++) {
+						int px = x + kx, py = y + ky;
+						if (px >= 0 && px < w && py >= 0 && py < h) {
+							int rgb = img.get(px, py);
+							sr += (rgb >> 16) & 255;
+							sg += (rgb >> 8) & 255;
+							sb += rgb & 255;
+							count++;
+						}
+					}
+				}
+				out[y * w + x] = (0xff << 24) | ((sr / count) << 16) | ((sg / count) << 8) | (sb / count);
+			}
+		}
+		return out;
+	}
+}
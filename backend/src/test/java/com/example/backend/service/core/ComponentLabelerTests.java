@@ -0,0 +1,62 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ComponentLabelerTests {
+
+	private final ComponentLabeler labeler = new ComponentLabeler(new TileScheduler(4, 64));
+
+	@Test
+	void matchesBreadthFirstReference() {
+		Random rnd = new Random(11);
+		int[][] sizes = {{1, 1}, {7, 3}, {64, 64}, {131, 300}, {300, 257}};
+		double[] densities = {0.0, 0.3, 0.55, 0.6, 0.9, 1.0};
+		for (int[] size : sizes) {
+			int w = size[0], h = size[1];
+			for (double density : densities) {
+				long[] mask = ComponentLabeler.newMask(w, h);
+				for (int i = 0; i < w * h; i++) {
+					if (rnd.nextDouble() < density) ComponentLabeler.set(mask, i);
+				}
+				assertArrayEquals(reference(mask, w, h), labeler.largestComponent(mask, w, h),
+						w + "x" + h + " @ " + density);
+			}
+		}
+	}
+
+	// The BFS that the service used before, on the same bitset layout
+	private static long[] reference(long[] mask, int w, int h) {
+		boolean[] visited = new boolean[w * h];
+		int[] best = new int[0];
+		for (int start = 0; start < w * h; start++) {
+			if (!ComponentLabeler.get(mask, start) || visited[start]) continue;
+			int[] component = new int[w * h];
+			int size = 0;
+			ArrayDeque<Integer> q = new ArrayDeque<>();
+			q.add(start);
+			visited[start] = true;
+			while (!q.isEmpty()) {
+				int p = q.poll();
+				component[size++] = p;
+				int x = p % w, y = p / w;
+				int[] next = {x + 1 < w ? p + 1 : -1, x > 0 ? p - 1 : -1, y + 1 < h ? p + w : -1, y > 0 ? p - w : -1};
+				for (int n : next) {
+					if (n >= 0 && ComponentLabeler.get(mask, n) && !visited[n]) {
+						visited[n] = true;
+						q.add(n);
+					}
+				}
+			}
+			if (size > best.length) best = Arrays.copyOf(component, size);
+		}
+		long[] out = ComponentLabeler.newMask(w, h);
+		for (int p : best) ComponentLabeler.set(out, p);
+		return out;
+	}
+}
@@ -0,0 +1,151 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompositorTests {
+
+	private final Random rnd = new Random(18);
+
+	@Test
+	void integerBlendIsWithinOneOfFloatSourceOver() {
+		int n = 200_000;
+		int[] base = new int[n], over = new int[n];
+		for (int i = 0; i < n; i++) {
+			base[i] = pixel();
+			over[i] = pixel();
+		}
+		for (float opacity : new float[]{0.01f, 0.25f, 0.5f, 0.7f, 0.999f, 1f}) {
+			int[] canvas = base.clone();
+			Compositor.over(canvas, over, 0, n, Compositor.opacity(opacity));
+			for (int i = 0; i < n; i++) {
+				int b = base[i], o = over[i], got = canvas[i];
+				int expected = floatOver(b, o, opacity);
+				for (int shift = 0; shift < 32; shift += 8) {
+					int d = Math.abs((got >>> shift & 0xff) - (expected >>> shift & 0xff));
+					assertTrue(d <= 1, () -> String.format("opacity %s: %08x over %08x gave %08x, float %08x",
+							opacity, o, b, got, expected));
+				}
+			}
+		}
+	}
+
+	@Test
+	void opaqueCanvasLerpIsWithinOneOfFloatSourceOver() {
+		int n = 50_000;
+		int[] base = new int[n], over = new int[n];
+		for (int i = 0; i < n; i++) {
+			base[i] = 0xff000000 | rnd.nextInt();
+			over[i] = pixel();
+		}
+		// Odd 16.16 fractions, where folding the opacity into 8 bits rounds the most
+		for (int k = 0; k < 40; k++) {
+			int op = 1 + rnd.nextInt(Compositor.OPAQUE);
+			int[] canvas = base.clone();
+			Compositor.over(canvas, over, 0, n, op);
+			for (int i = 0; i < n; i++) {
+				int b = base[i], o = over[i], got = canvas[i];
+				int expected = floatOver(b, o, op / (float) Compositor.OPAQUE);
+				assertEquals(0xff, got >>> 24);
+				for (int shift = 0; shift < 24; shift += 8) {
+					int d = Math.abs((got >>> shift & 0xff) - (expected >>> shift & 0xff));
+					assertTrue(d <= 1, () -> String.format("opacity %d: %08x over %08x gave %08x, float %08x",
+							op, o, b, got, expected));
+				}
+			}
+		}
+
+		for (int x = 0; x <= 255 * 255; x++) assertEquals(Math.round(x / 255.0), Compositor.div255(x));
+	}
+
+	@Test
+	void fastPathsAreExact() {
+		int[] base = {0xff102030, 0x80405060, 0x00000000};
+		int[] over = {0xffa0b0c0, 0xffa0b0c0, 0x7f112233};
+
+		int[] canvas = base.clone();
+		Compositor.over(canvas, over, 0, 3, Compositor.opacity(0f));
+		assertArrayEquals(base, canvas);
+
+		Compositor.over(canvas, over, 0, 3, Compositor.opacity(1f));
+		assertEquals(over[0], canvas[0]);
+		assertEquals(over[1], canvas[1]);
+		// Translucent overlay onto an empty pixel keeps its own colour and alpha
+		assertEquals(over[2], canvas[2]);
+	}
+
+	@Test
+	void proceduralLayersMatchRasterOverlays() {
+		int w = 301, h = 157;
+		int[] base = new int[w * h];
+		for (int i = 0; i < base.length; i++) base[i] = pixel();
+		int op = Compositor.opacity(0.6f);
+
+		int[] expected = base.clone(), canvas = base.clone();
+		Compositor.over(expected, fill(w, h, new Color(0x3366cc), null), 0, base.length, op);
+		Compositor.overColor(canvas, 0, base.length, 0xff3366cc, op);
+		assertArrayEquals(expected, canvas);
+
+		for (int[] p : new int[][]{{0, 0, w, h}, {w, 20, 0, 120}, {150, -40, 150, 200}, {10, 10, 10, 10}}) {
+			Color c1 = new Color(0xff2000), c2 = new Color(0x10e0ff);
+			expected = base.clone();
+			canvas = base.clone();
+			Compositor.over(expected, fill(w, h, null, new GradientPaint(p[0], p[1], c1, p[2], p[3], c2)), 0, base.length, op);
+			new LinearGradient(p[0], p[1], c1.getRGB(), p[2], p[3], c2.getRGB()).blend(canvas, w, 0, h, op);
+			for (int i = 0; i < base.length; i++) {
+				for (int shift = 0; shift < 32; shift += 8) {
+					assertTrue(Math.abs((canvas[i] >>> shift & 0xff) - (expected[i] >>> shift & 0xff)) <= 2,
+							"pixel " + i);
+				}
+			}
+		}
+	}
+
+	private static int[] fill(int w, int h, Color color, Paint paint) {
+		BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setPaint(paint != null ? paint : color);
+		g.fillRect(0, 0, w, h);
+		g.dispose();
+		return PixelBuffer.wrap(img).data();
+	}
+
+	// Mix of opaque, transparent and low-alpha pixels, where rounding is most fragile
+	private int pixel() {
+		int rgb = rnd.nextInt() & 0xffffff;
+		switch (rnd.nextInt(4)) {
+			case 0:  return 0xff000000 | rgb;
+			case 1:  return rnd.nextInt(4) << 24 | rgb;
+			default: return rnd.nextInt(256) << 24 | rgb;
+		}
+	}
+
+	// The float Porter-Duff path this compositor replaced
+	private static int floatOver(int argbB, int argbO, float opacity) {
+		float aB = ((argbB >> 24) & 0xFF) / 255.0f;
+		float rB = ((argbB >> 16) & 0xFF) / 255.0f;
+		float gB = ((argbB >> 8) & 0xFF) / 255.0f;
+		float bB = (argbB & 0xFF) / 255.0f;
+
+		float aO = (((argbO >> 24) & 0xFF) / 255.0f) * opacity;
+		float rO = ((argbO >> 16) & 0xFF) / 255.0f;
+		float gO = ((argbO >> 8) & 0xFF) / 255.0f;
+		float bO = (argbO & 0xFF) / 255.0f;
+
+		float outA = aO + aB * (1 - aO);
+		float outR = (outA > 0) ? (rO * aO + rB * aB * (1 - aO)) / outA : 0;
+		float outG = (outA > 0) ? (gO * aO + gB * aB * (1 - aO)) / outA : 0;
+		float outB = (outA > 0) ? (bO * aO + bB * aB * (1 - aO)) / outA : 0;
+
+		return ((int)(outA * 255) << 24) | ((int)(outR * 255) << 16) |
+				((int)(outG * 255) << 8) | (int)(outB * 255);
+	}
+}
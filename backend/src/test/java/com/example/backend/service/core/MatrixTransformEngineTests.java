@@ -0,0 +1,147 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatrixTransformEngineTests {
+
+	private final MatrixTransformEngine engine = new MatrixTransformEngine(new TileScheduler(4, 256));
+
+	@Test
+	void axisAlignedTransformsAreExactPermutations() {
+		Random rnd = new Random(9);
+		for (int[] size : new int[][]{{1, 1}, {3, 7}, {130, 67}, {67, 200}}) {
+			int w = size[0], h = size[1];
+			PixelBuffer src = PixelBuffer.create(w, h);
+			for (int i = 0; i < w * h; i++) src.data()[i] = rnd.nextInt();
+
+			check(src, new double[][]{{1, 0}, {0, 1}}, w, h, (x, y) -> src.get(x, y));
+			check(src, new double[][]{{-1, 0}, {0, 1}}, w, h, (x, y) -> src.get(w - 1 - x, y));
+			check(src, new double[][]{{1, 0}, {0, -1}}, w, h, (x, y) -> src.get(x, h - 1 - y));
+			check(src, rotation(180), w, h, (x, y) -> src.get(w - 1 - x, h - 1 - y));
+			check(src, rotation(90), h, w, (x, y) -> src.get(y, h - 1 - x));
+			check(src, rotation(270), h, w, (x, y) -> src.get(w - 1 - y, x));
+			check(src, rotation(-90), h, w, (x, y) -> src.get(w - 1 - y, x));
+			check(src, new double[][]{{0, 1}, {1, 0}}, h, w, (x, y) -> src.get(y, x));
+		}
+	}
+
+	@Test
+	void arbitraryRotationMatchesPerPixelReference() {
+		Random rnd = new Random(21);
+		int w = 97, h = 61;
+		PixelBuffer src = PixelBuffer.create(w, h);
+		for (int i = 0; i < w * h; i++) src.data()[i] = rnd.nextInt();
+
+		for (double angle : new double[]{17, 33.3, 123, -71}) {
+			double[][] m = rotation(angle);
+			double rad = Math.toRadians(angle);
+			int dw = (int) Math.floor(w * Math.abs(Math.cos(rad)) + h * Math.abs(Math.sin(rad)));
+			int dh = (int) Math.floor(h * Math.abs(Math.cos(rad)) + w * Math.abs(Math.sin(rad)));
+
+			check(src, m, dw, dh, (x, y) -> {
+				double dx = x + 0.5 - dw / 2.0, dy = y + 0.5 - dh / 2.0;
+				int sx = (int) Math.floor(m[0][0] * dx + m[0][1] * dy + w / 2.0);
+				int sy = (int) Math.floor(m[1][0] * dx + m[1][1] * dy + h / 2.0);
+				return (sx >= 0 && sx < w && sy >= 0 && sy < h) ? src.get(sx, sy) : 0xFFFFFFFF;
+			});
+		}
+	}
+
+	@Test
+	void filtersReproduceFlatColourAndOnlyFillOutsideTheSource() {
+		int w = 50, h = 40, colour = 0x80336699;
+		PixelBuffer src = PixelBuffer.create(w, h);
+		Arrays.fill(src.data(), colour);
+
+		for (Interpolation mode : Interpolation.values()) {
+			PixelBuffer out = engine.applyTransform(src, rotation(29), 70, 70, mode);
+			for (int v : out.data()) {
+				assertTrue(v == colour || v == 0xFFFFFFFF, mode + ": " + Integer.toHexString(v));
+			}
+		}
+	}
+
+	@Test
+	void windowMatchesTheSameRegionOfTheFullRender() {
+		Random rnd = new Random(4);
+		PixelBuffer src = PixelBuffer.create(40, 30);
+		for (int i = 0; i < 1200; i++) src.data()[i] = rnd.nextInt();
+		double[][] zoom = {{1 / 3.5, 0}, {0, 1 / 3.5}};
+
+		for (Interpolation mode : Interpolation.values()) {
+			PixelBuffer full = engine.applyTransform(src, zoom, 140, 105, mode);
+			Rectangle window = new Rectangle(37, 12, 50, 61);
+			PixelBuffer part = engine.applyTransform(src, zoom, 140, 105, window, mode);
+			for (int y = 0; y < window.height; y++) {
+				for (int x = 0; x < window.width; x++) {
+					assertEquals(full.get(window.x + x, window.y + y), part.get(x, y), mode + " at " + x + "," + y);
+				}
+			}
+		}
+	}
+
+	@Test
+	void chainedStepsResampleOnceAndIdentityChainsAreSkipped() {
+		Random rnd = new Random(24);
+		int w = 45, h = 28;
+		PixelBuffer src = PixelBuffer.create(w, h);
+		for (int i = 0; i < w * h; i++) src.data()[i] = rnd.nextInt();
+
+		// Axis-aligned chains compose to one exact permutation, equal to running the steps in turn
+		PixelBuffer stepwise = engine.apply(engine.apply(engine.apply(src,
+				TransformChain.of(src).rotate(90), Interpolation.NEAREST),
+				TransformChain.of(h, w).flipHorizontal(), Interpolation.NEAREST),
+				TransformChain.of(h, w).rotate(180), Interpolation.NEAREST);
+		TransformChain chain = TransformChain.of(src).rotate(90).flipHorizontal().rotate(180);
+		PixelBuffer fused = engine.apply(src, chain, Interpolation.BILINEAR);
+		assertEquals(3, chain.steps());
+		assertEquals(h, fused.width());
+		assertEquals(w, fused.height());
+		assertArrayEquals(stepwise.data(), fused.data());
+
+		// Bounding boxes follow the steps, so sizes match the one-at-a-time result
+		TransformChain rz = TransformChain.of(src).rotate(30).scale(1.5);
+		PixelBuffer r = engine.apply(src, TransformChain.of(src).rotate(30), Interpolation.NEAREST);
+		PixelBuffer z = engine.apply(r, TransformChain.of(r).scale(1.5), Interpolation.NEAREST);
+		assertEquals(z.width(), rz.width());
+		assertEquals(z.height(), rz.height());
+
+		for (TransformChain identity : new TransformChain[]{
+				TransformChain.of(src).rotate(90).rotate(-90),
+				TransformChain.of(src).flipVertical().flipVertical(),
+				TransformChain.of(src).scale(2).scale(0.5),
+				TransformChain.of(src).rotate(0)}) {
+			assertTrue(identity.isIdentity());
+			PixelBuffer out = engine.apply(src, identity, Interpolation.BICUBIC);
+			assertNotSame(src, out);
+			assertArrayEquals(src.data(), out.data());
+		}
+	}
+
+	private interface Expected {
+		int at(int x, int y);
+	}
+
+	private void check(PixelBuffer src, double[][] m, int w, int h, Expected expected) {
+		int[] want = new int[w * h];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) want[y * w + x] = expected.at(x, y);
+		}
+		assertArrayEquals(want, engine.applyTransform(src, m, w, h).data());
+	}
+
+	// Same matrix RotateService builds
+	private static double[][] rotation(double angle) {
+		double rad = Math.toRadians(angle);
+		return new double[][]{{Math.cos(rad), Math.sin(rad)}, {-Math.sin(rad), Math.cos(rad)}};
+	}
+}
@@ -0,0 +1,52 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PointLutTests {
+
+	@Test
+	void fusedChainMatchesSequentialPasses() {
+		PointLut fused = PointLut.brightness(40)
+				.then(PointLut.grayscale())
+				.then(PointLut.contrast(-70))
+				.then(PointLut.grayscale())
+				.then(PointLut.brightness(-15));
+
+		Random rnd = new Random(7);
+		for (int n = 0; n < 100_000; n++) {
+			int rgb = rnd.nextInt();
+			int expected = brightness(gray(contrast(gray(brightness(rgb, 40)), -70)), -15);
+			assertEquals(expected, fused.map(rgb));
+		}
+	}
+
+	// Reference formulas copied from the original per-pixel services
+
+	private static int gray(int rgb) {
+		int gray = (int)(0.299 * ((rgb >> 16) & 255) + 0.587 * ((rgb >> 8) & 255) + 0.114 * (rgb & 255));
+		return (0xff << 24) | (gray << 16) | (gray << 8) | gray;
+	}
+
+	private static int brightness(int rgb, int level) {
+		int r = clamp(((rgb >> 16) & 255) + level);
+		int g = clamp(((rgb >> 8) & 255) + level);
+		int b = clamp((rgb & 255) + level);
+		return (0xff << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	private static int contrast(int rgb, int level) {
+		double factor = (259.0 * (level + 255)) / (255.0 * (259 - level));
+		int r = clamp((int)(factor * (((rgb >> 16) & 255) - 128) + 128));
+		int g = clamp((int)(factor * (((rgb >> 8) & 255) - 128) + 128));
+		int b = clamp((int)(factor * ((rgb & 255) - 128) + 128));
+		return (0xff << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	private static int clamp(int v) {
+		return Math.max(0, Math.min(255, v));
+	}
+}
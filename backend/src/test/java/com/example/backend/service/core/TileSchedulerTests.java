@@ -0,0 +1,103 @@
+package com.example.backend.service.core;
+
+import com.example.backend.service.basic.BrightnessService;
+import com.example.backend.service.basic.ContrastService;
+import com.example.backend.service.basic.GrayscaleService;
+import com.example.backend.service.filters.SharpenService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TileSchedulerTests {
+
+	// Prime height, so no band size divides it evenly
+	private static final int W = 53, H = 37;
+
+	private final List<TileScheduler> schedulers = new ArrayList<>();
+
+	@AfterEach
+	void shutDown() {
+		schedulers.forEach(TileScheduler::destroy);
+	}
+
+	@Test
+	void tiledRunsMatchASingleFullHeightBand() {
+		PixelBuffer src = randomImage();
+		Operators serial = operators(1, Integer.MAX_VALUE);
+		// One-row bands (widened to the halo), and bands of 3 and 5 rows plus a remainder
+		for (int tilePixels : new int[] {1, W * 3, W * 5 + 1}) {
+			Operators tiled = operators(4, tilePixels);
+			check(serial, tiled, src, tilePixels, "grayscale", o -> o.grayscale.process(src));
+			check(serial, tiled, src, tilePixels, "brightness", o -> o.brightness.process(src, 40));
+			check(serial, tiled, src, tilePixels, "contrast", o -> o.contrast.process(src, -70));
+			check(serial, tiled, src, tilePixels, "sharpen", o -> o.sharpen.process(src, 3, false));
+			for (int r : new int[] {1, 4, 20}) {
+				check(serial, tiled, src, tilePixels, "box " + r, o -> blur(o, src, r, BlurMode.BOX));
+				check(serial, tiled, src, tilePixels, "gaussian " + r, o -> blur(o, src, r, BlurMode.GAUSSIAN));
+			}
+			double[][] rotate = {{0.8, -0.6, 30}, {0.6, 0.8, -10}};
+			for (Interpolation mode : Interpolation.values()) {
+				check(serial, tiled, src, tilePixels, "transform " + mode,
+						o -> o.engine.applyTransform(src, rotate, W + 7, H - 5, mode));
+			}
+		}
+	}
+
+	private static void check(Operators serial, Operators tiled, PixelBuffer src, int tilePixels, String name,
+			Function<Operators, PixelBuffer> op) {
+		int[] before = src.data().clone();
+		assertArrayEquals(op.apply(serial).data(), op.apply(tiled).data(), name + ", tile pixels " + tilePixels);
+		assertArrayEquals(before, src.data(), name + " wrote to its source");
+	}
+
+	private static PixelBuffer blur(Operators o, PixelBuffer src, int radius, BlurMode mode) {
+		PixelBuffer out = PixelBuffer.create(src.width(), src.height());
+		if (mode == BlurMode.GAUSSIAN) o.blur.gaussian(src, out, radius);
+		else o.blur.box(src, out, radius);
+		return out;
+	}
+
+	private TileScheduler scheduler(int threads, int tilePixels) {
+		TileScheduler scheduler = new TileScheduler(threads, tilePixels);
+		schedulers.add(scheduler);
+		return scheduler;
+	}
+
+	private Operators operators(int threads, int tilePixels) {
+		return new Operators(scheduler(threads, tilePixels));
+	}
+
+	private static final class Operators {
+		final GrayscaleService grayscale;
+		final BrightnessService brightness;
+		final ContrastService contrast;
+		final SharpenService sharpen;
+		final BlurEngine blur;
+		final MatrixTransformEngine engine;
+
+		Operators(TileScheduler scheduler) {
+			PixelKernelProvider kernels = new PixelKernelProvider(true);
+			grayscale = new GrayscaleService(scheduler, kernels);
+			brightness = new BrightnessService(scheduler, kernels);
+			contrast = new ContrastService(scheduler, kernels);
+			sharpen = new SharpenService(grayscale, scheduler);
+			blur = new BlurEngine(scheduler);
+			engine = new MatrixTransformEngine(scheduler);
+		}
+	}
+
+	private static PixelBuffer randomImage() {
+		PixelBuffer buf = PixelBuffer.create(W, H);
+		Random rnd = new Random(3);
+		for (int i = 0; i < buf.data().length; i++) {
+			buf.data()[i] = rnd.nextInt();
+		}
+		return buf;
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.backend.service.core;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VectorKernelsTests {
+
+	// Odd length so every kernel also runs its scalar tail
+	private static final int N = 10_007;
+
+	private static PixelKernels vector;
+	private static final PixelKernels scalar = ScalarKernels.INSTANCE;
+
+	private final Random rnd = new Random(5);
+
+	@BeforeAll
+	static void requireVectorModule() {
+		assumeTrue(PixelKernelProvider.vectorModulePresent(), "jdk.incubator.vector not enabled");
+		vector = new VectorKernels();
+	}
+
+	@Test
+	void pointKernelsMatchScalarAndLookupTables() {
+		int[] in = random();
+		assertSame((s, o) -> s.grayscale(in, o, 3, N), PointLut.grayscale(), in);
+		for (int level = -300; level <= 300; level += 7) {
+			int l = level;
+			assertSame((s, o) -> s.brightness(in, o, 3, N, l), PointLut.brightness(l), in);
+			assertSame((s, o) -> s.contrast(in, o, 3, N, l), PointLut.contrast(l), in);
+		}
+	}
+
+	@Test
+	void thresholdMatchesScalarAndSquareRootFormula() {
+		int[] px = random();
+		int bg = rnd.nextInt();
+		for (int t : new int[]{-5, 0, 20, 50, 130, 441, 442, 10_000}) {
+			long[] a = ComponentLabeler.newMask(N, 1), b = ComponentLabeler.newMask(N, 1);
+			scalar.threshold(px, N, bg, t, a);
+			vector.threshold(px, N, bg, t, b);
+			assertArrayEquals(a, b, "threshold " + t);
+
+			for (int i = 0; i < N; i++) {
+				double dist = Math.sqrt(Math.pow(((px[i] >> 16) & 255) - ((bg >> 16) & 255), 2)
+						+ Math.pow(((px[i] >> 8) & 255) - ((bg >> 8) & 255), 2)
+						+ Math.pow((px[i] & 255) - (bg & 255), 2));
+				assertEquals(dist > t, ComponentLabeler.get(a, i));
+			}
+		}
+	}
+
+	@Test
+	void overMatchesTheIntegerCompositor() {
+		int[] canvas = random(), overlay = random();
+		// Alpha 0 and 255 on both sides hit every scalar fast path
+		int[] alphas = {0, 255, 0, 255, 1, 128};
+		for (int i = 0; i < N; i += 3) {
+			canvas[i] = canvas[i] & 0xffffff | alphas[i % 6] << 24;
+			overlay[i] = overlay[i] & 0xffffff | alphas[(i / 3) % 6] << 24;
+		}
+		for (int op : new int[]{0, 1, 777, Compositor.opacity(0.5f), Compositor.OPAQUE - 1, Compositor.OPAQUE}) {
+			int[] a = canvas.clone(), b = canvas.clone();
+			scalar.over(a, overlay, 3, N, op);
+			vector.over(b, overlay, 3, N, op);
+			assertArrayEquals(a, b, "opacity " + op);
+			// Opacity 0 leaves the canvas as it is
+			for (int i = 3; i < N; i++) assertEquals(op == 0 ? canvas[i] : Compositor.over(canvas[i], overlay[i], op), b[i]);
+		}
+	}
+
+	private interface Kernel {
+		void run(PixelKernels k, int[] out);
+	}
+
+	private static void assertSame(Kernel kernel, PointLut lut, int[] in) {
+		int[] a = new int[N], b = new int[N];
+		kernel.run(scalar, a);
+		kernel.run(vector, b);
+		assertArrayEquals(a, b);
+		for (int i = 3; i < N; i++) a[i] = lut.map(in[i]);
+		assertArrayEquals(a, b);
+	}
+
+	private int[] random() {
+		int[] px = new int[N];
+		for (int i = 0; i < N; i++) px[i] = rnd.nextInt();
+		return px;
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.backend.service.util;
+
+import com.example.backend.service.core.PixelBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageUtilTests {
+
+	@Test
+	void decodeRegionMatchesCroppingTheFullImage() throws Exception {
+		Random rnd = new Random(11);
+		PixelBuffer img = PixelBuffer.create(53, 41);
+		for (int i = 0; i < img.data().length; i++) img.data()[i] = rnd.nextInt() | 0x01000000;
+		byte[] png = PngEncoder.encode(img, 6, PngEncoder.Filter.ADAPTIVE);
+
+		// Inside, touching the edges, and running past the bottom-right corner (clipped)
+		for (Rectangle r : new Rectangle[]{new Rectangle(7, 5, 20, 13), new Rectangle(0, 0, 53, 41), new Rectangle(40, 30, 50, 50)}) {
+			PixelBuffer region = ImageUtil.decodeRegion(png, r);
+			Rectangle c = r.intersection(new Rectangle(53, 41));
+			assertEquals(c.width, region.width());
+			assertEquals(c.height, region.height());
+			for (int y = 0; y < c.height; y++) {
+				for (int x = 0; x < c.width; x++) {
+					assertEquals(img.data()[(c.y + y) * 53 + c.x + x], region.data()[y * c.width + x], r + " at " + x + "," + y);
+				}
+			}
+		}
+
+		assertNull(ImageUtil.decodeRegion(png, new Rectangle(53, 0, 5, 5)));
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.backend.service.util;
+
+import com.example.backend.service.core.PixelBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class PngEncoderTests {
+
+	@Test
+	void everyLevelAndFilterRoundTripsLosslessly() throws Exception {
+		Random rnd = new Random(3);
+		PixelBuffer opaque = PixelBuffer.create(37, 23);
+		PixelBuffer translucent = PixelBuffer.create(37, 23);
+		for (int i = 0; i < opaque.data().length; i++) {
+			opaque.data()[i] = 0xff000000 | rnd.nextInt(0x1000000);
+			translucent.data()[i] = rnd.nextInt() | 0x01000000;
+		}
+
+		for (PixelBuffer img : new PixelBuffer[]{opaque, translucent}) {
+			for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+				for (int level : new int[]{0, 1, 9}) {
+					PixelBuffer decoded = ImageUtil.decodeBuffer(PngEncoder.encode(img, level, filter));
+					assertArrayEquals(img.data(), decoded.data(), filter + " @ " + level);
+				}
+			}
+		}
+	}
+}
@@ -368,10 +368,34 @@ export default function App() {
   
   const fileInputRef = useRef(null);
 
+  // Handle returned by /upload so operations can reuse the server-side decoded original
+  const [imageHandle, setImageHandle] = useState(null);
+
+  // Send the handle instead of re-uploading the original; fall back to the file if it expired
+  const postWithImage = async (path, fd) => {
+    if (imageHandle) {
+      fd.append("handle", imageHandle);
+      try {
+        return await api.post(path, fd);
+      } catch (err) {
+        if (err.response?.status !== 404) throw err;
+        fd.delete("handle");
+      }
+    }
+    fd.append("image", originalBlob);
+    return api.post(path, fd);
+  };
+
   const handleUpload = (e) => {
     const file = e.target.files[0];
     if (!file) return;
     setOriginalBlob(file);
+    setImageHandle(null);
+    const uploadFd = new FormData();
+    uploadFd.append("image", file);
+    api.post("/upload", uploadFd)
+      .then((res) => setImageHandle(res.data.handle))
+      .catch(() => setImageHandle(null));
     const url = URL.createObjectURL(file);
     setOriginalUrl(url);
 
@@ -411,10 +435,9 @@ const handleRemoveBackground = async () => {
   
   setLoading(true);
   const fd = new FormData();
-  fd.append("image", originalBlob);
 
   try {
-    const res = await api.post("/remove-background", fd);
+    const res = await postWithImage("/remove-background", fd);
     setPreviewUrl(`data:image/png;base64,${res.data.image}`);
     setResultLinear(res.data.linear);
     setResultDimensions({ width: res.data.width, height: res.data.height });
@@ -432,10 +455,9 @@ const handleAddBackgroundRemovalLayer = async () => {
   
   setLoading(true);
   const fd = new FormData();
-  fd.append("image", originalBlob);
 
   try {
-    const res = await api.post("/remove-background", fd);
+    const res = await postWithImage("/remove-background", fd);
     
     const newLayer = {
       id: nextLayerId,
@@ -467,12 +489,11 @@ const handleAddBackgroundRemovalLayer = async () => {
     if (originalBlob) {
       setLoading(true);
       const fd = new FormData();
-      fd.append("image", originalBlob);
       fd.append("grayscale", newMode);
       fd.append("level", 0); 
 
       try {
-        const res = await api.post("/brightness", fd);
+        const res = await postWithImage("/brightness", fd);
         setSourceLinear(res.data.linear);
         
         // Reset preview if all filters are at default
@@ -554,7 +575,6 @@ const handleAddBackgroundRemovalLayer = async () => {
 
     setLoading(true);
     const fd = new FormData();
-    fd.append("image", originalBlob);
     fd.append("grayscale", isGrayscaleMode);
     
     if (endpoint !== 'zoom' && zoom !== 1) {
@@ -564,7 +584,7 @@ const handleAddBackgroundRemovalLayer = async () => {
     Object.entries(params).forEach(([key, val]) => fd.append(key, val));
 
     try {
-      const res = await api.post(`/${endpoint}`, fd);
+      const res = await postWithImage(`/${endpoint}`, fd);
       setPreviewUrl(`data:image/png;base64,${res.data.image}`);
       setResultLinear(res.data.linear);
       setLastAppliedFilter(endpoint);
@@ -586,12 +606,11 @@ const handleAddBackgroundRemovalLayer = async () => {
     
     setLoading(true);
     const fd = new FormData();
-    fd.append("image", originalBlob);
     fd.append("grayscale", false); // Always use color version for layers
     Object.entries(params).forEach(([key, val]) => fd.append(key, val));
 
     try {
-      const res = await api.post(`/${filterType}`, fd);
+      const res = await postWithImage(`/${filterType}`, fd);
       
       const newLayer = {
         id: nextLayerId,
@@ -623,10 +642,9 @@ const handleAddBackgroundRemovalLayer = async () => {
     
     setLoading(true);
     const fd = new FormData();
-    fd.append("image", originalBlob);
 
     try {
-      const res = await api.post("/grayscale", fd);
+      const res = await postWithImage("/grayscale", fd);
       
       const newLayer = {
         id: nextLayerId,
@@ -703,10 +721,9 @@ const updateLayerComposite = async (currentLayers) => {
   try {
     // Send ALL layers (backend will filter visible ones)
     const fd = new FormData();
-    fd.append("image", originalBlob);
     fd.append("layers", JSON.stringify(currentLayers));
 
-    const res = await api.post("/composite-layers", fd);
+    const res = await postWithImage("/composite-layers", fd);
     setLayerViewUrl(`data:image/png;base64,${res.data.image}`);
     setLayerLinear(res.data.linear);
     setLayerDimensions({
@@ -787,10 +804,9 @@ const updateLayerComposite = async (currentLayers) => {
     try {
       const visibleLayers = layers.filter(l => l.visible);
       const fd = new FormData();
-      fd.append("image", originalBlob);
       fd.append("layers", JSON.stringify(visibleLayers));
 
-      const res = await api.post("/composite-layers", fd);
+      const res = await postWithImage("/composite-layers", fd);
       
       // Create download link
       const base64Image = res.data.image;
@@ -819,7 +835,6 @@ const updateLayerComposite = async (currentLayers) => {
 
     setLoading(true);
     const fd = new FormData();
-    fd.append("image", originalBlob);
     fd.append("x", cropData.x);
     fd.append("y", cropData.y);
     fd.append("w", cropData.w);
@@ -827,7 +842,7 @@ const updateLayerComposite = async (currentLayers) => {
     fd.append("grayscale", isGrayscaleMode);
 
     try {
-      const res = await api.post("/crop", fd);
+      const res = await postWithImage("/crop", fd);
       
       setPreviewUrl(`data:image/png;base64,${res.data.image}`);
       setResultLinear(res.data.linear);
@@ -7,6 +7,9 @@ const instance = axios.create({
   
   // Optional: Set a timeout (e.g., 10 seconds)
   timeout: 10000,
+
+  // The pixel inspector reads the full matrix, which the API leaves out unless asked
+  params: { matrix: true },
 });
 
 // Optional: Add an interceptor to handle errors globally